@@ -0,0 +1,62 @@
+package com.example.minibank.benchmark;
+
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.model.Account;
+import com.example.minibank.service.AccountService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of an {@link Account} as returned by {@code GET /accounts/{code}}, with its
+ * customer and transfer lists, using the application's own {@link ObjectMapper}. The account is
+ * loaded from H2 once per trial, so only serialization is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountSerializationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoadedAccount {
+
+        @Param({"10", "1000"})
+        public int transfersPerAccount;
+
+        BenchmarkApplication application;
+        ObjectMapper objectMapper;
+        Account account;
+
+        @Setup(Level.Trial)
+        public void start() {
+            application = BenchmarkApplication.start(TransferProperties.Mode.STANDARD);
+            objectMapper = application.getBean(ObjectMapper.class);
+
+            String code = application.openAccounts(2)[0];
+            application.insertTransferHistory(transfersPerAccount);
+
+            account = application.getBean(TransactionTemplate.class).execute(status -> {
+                Account loaded = application.getBean(AccountService.class).getAccount(code);
+                Hibernate.initialize(loaded.getSentTransfers());
+                Hibernate.initialize(loaded.getReceivedTransfers());
+                return loaded;
+            });
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            application.close();
+        }
+    }
+
+    @Benchmark
+    public String serializeAccount(LoadedAccount loadedAccount) throws JsonProcessingException {
+        return loadedAccount.objectMapper.writeValueAsString(loadedAccount.account);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.minibank.benchmark;
+
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.controller.request.DepositRequest;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.view.TransferView;
+import com.example.minibank.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits, transfers and transfer listings through {@link AccountService}.
+ *
+ * <p>With {@code contention=UNIFORM} every operation picks its accounts at random. With
+ * {@code contention=HOT} every deposit goes to the same account and every transfer is paid into it,
+ * so concurrent threads keep conflicting on one row. Transfers and deposits that still conflict
+ * after all retries are counted as completed operations, the same way a client would see a failed
+ * request return. Other transfer modes are compared with {@code -p transferMode=PESSIMISTIC,LEDGER}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    private static final Money DEPOSIT_AMOUNT = Money.of(AccountService.MINIMUM_DEPOSIT_AMOUNT);
+    private static final Money TRANSFER_AMOUNT = Money.of(AccountService.MINIMUM_TRANSFER_AMOUNT);
+
+    public enum Contention {
+        UNIFORM, HOT
+    }
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+
+        @Param({"100", "10000"})
+        public int accounts;
+
+        @Param({"UNIFORM", "HOT"})
+        public Contention contention;
+
+        @Param({"STANDARD"})
+        public TransferProperties.Mode transferMode;
+
+        @Param({"10"})
+        public int transfersPerAccount;
+
+        BenchmarkApplication application;
+        AccountService accountService;
+        String[] codes;
+
+        @Setup(Level.Trial)
+        public void start() {
+            application = BenchmarkApplication.start(transferMode);
+            accountService = application.getBean(AccountService.class);
+            codes = application.openAccounts(accounts);
+            application.insertTransferHistory(transfersPerAccount);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            application.close();
+        }
+
+        String anyAccount() {
+            return codes[ThreadLocalRandom.current().nextInt(codes.length)];
+        }
+
+        String depositAccount() {
+            return (contention == Contention.HOT) ? codes[0] : anyAccount();
+        }
+
+        String receiverFor(String sender) {
+            String receiver = (contention == Contention.HOT) ? codes[0] : anyAccount();
+
+            return receiver.equals(sender) ? codes[(indexOf(sender) + 1) % codes.length] : receiver;
+        }
+
+        private int indexOf(String code) {
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i].equals(code)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        final DepositRequest deposit = new DepositRequest();
+        final TransferRequest transfer = new TransferRequest();
+
+        @Setup
+        public void create() {
+            deposit.setAmount(DEPOSIT_AMOUNT);
+            transfer.setAmount(TRANSFER_AMOUNT);
+        }
+    }
+
+    @Benchmark
+    public Object deposit(Bank bank, Requests requests) {
+        try {
+            return bank.accountService.deposit(bank.depositAccount(), requests.deposit);
+        } catch (ConcurrencyFailureException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Object transfer(Bank bank, Requests requests) {
+        String sender = bank.anyAccount();
+        requests.transfer.setReceiverAccountCode(bank.receiverFor(sender));
+
+        try {
+            bank.accountService.transfer(sender, requests.transfer);
+            return requests.transfer;
+        } catch (ConcurrencyFailureException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * Reads both transfer lists of an account, which takes one query once the account is cached.
+     */
+    @Benchmark
+    public void getAllTransfers(Bank bank, Blackhole blackhole) {
+        Map<String, List<TransferView>> transfers = bank.accountService.getAllTransfers(bank.anyAccount());
+        blackhole.consume(transfers.get("sent").size());
+        blackhole.consume(transfers.get("received").size());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.minibank.benchmark;
+
+import com.example.minibank.MinibankApplication;
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.controller.request.DepositRequest;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.model.Money;
+import com.example.minibank.service.AccountService;
+import com.example.minibank.service.CustomerService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minibank without the web layer, running against its own in-memory H2 database, shared by the JMH
+ * benchmarks. Every trial starts a fresh application, so one trial's data never affects the next.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    static final Money OPENING_BALANCE = Money.of(AccountService.MAXIMUM_DEPOSIT_AMOUNT);
+
+    private final ConfigurableApplicationContext context;
+    private final AtomicLong customerSequence = new AtomicLong();
+
+    private BenchmarkApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    static BenchmarkApplication start(TransferProperties.Mode transferMode) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MinibankApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=warn",
+                        "minibank.transfer.mode=" + transferMode.name().toLowerCase(),
+                        "minibank.transfer.retry.max-attempts=10")
+                .run();
+
+        return new BenchmarkApplication(context);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates the given number of customers, each with an account holding {@link #OPENING_BALANCE},
+     * enough for a hundred thousand minimum transfers from every account during a trial.
+     *
+     * @return the account codes
+     */
+    String[] openAccounts(int count) {
+        CustomerService customerService = getBean(CustomerService.class);
+        AccountService accountService = getBean(AccountService.class);
+
+        DepositRequest deposit = new DepositRequest();
+        deposit.setAmount(OPENING_BALANCE);
+
+        String[] codes = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            Customer customer = customerService.createCustomer(newCustomer());
+            Account account = accountService.openNewAccountForCustomer(customer);
+            accountService.deposit(account.getCode(), deposit);
+            codes[i] = account.getCode();
+        }
+
+        return codes;
+    }
+
+    /**
+     * Inserts transfer history straight into the table: every account sends the given number of
+     * transfers, one to each of the accounts that follow it, wrapping around to the first account.
+     * Balances are left as they are, so this is only meant for benchmarks that read history.
+     */
+    void insertTransferHistory(int transfersPerAccount) {
+        JdbcTemplate jdbcTemplate = getBean(JdbcTemplate.class);
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM accounts ORDER BY id", Integer.class);
+        List<Object[]> rows = new ArrayList<>();
+
+        for (int sender = 0; sender < ids.size(); sender++) {
+            for (int i = 0; i < transfersPerAccount; i++) {
+                int receiver = (sender + 1 + i % (ids.size() - 1)) % ids.size();
+                rows.add(new Object[]{UUID.randomUUID().toString(), ids.get(sender), ids.get(receiver)});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO transfers (id, code, sender_account_id, receiver_account_id, amount, created_at) " +
+                "VALUES (NEXT VALUE FOR transfers_seq, ?, ?, ?, 1, CURRENT_TIMESTAMP)", rows);
+    }
+
+    /**
+     * A customer with an email address no other customer of this application has.
+     */
+    Customer newCustomer() {
+        long number = customerSequence.incrementAndGet();
+
+        Customer customer = new Customer();
+        customer.setName("Customer " + number);
+        customer.setEmail("customer" + number + "@example.com");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+        return customer;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
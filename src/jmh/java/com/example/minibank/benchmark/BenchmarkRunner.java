@@ -0,0 +1,49 @@
+package com.example.minibank.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks once per thread count and writes each run's results as JSON to
+ * {@code target/jmh/results-<threads>-threads.json}. Throughput is reported in operations per
+ * millisecond and latency as sampled percentiles (p50 to p99.99) in milliseconds.
+ *
+ * <p>Started through the {@code benchmarks} profile:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec [-Dbenchmark.threads=1,4,16] [-Dbenchmark.args="AccountServiceBenchmark.transfer -p accounts=100"]
+ * </pre>
+ * Arguments are regular JMH options. Passing {@code -t} runs only that thread count.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Path output = Path.of(System.getProperty("benchmark.output", "target/jmh"));
+        Files.createDirectories(output);
+
+        int[] threadCounts = commandLine.getThreads().hasValue()
+                ? new int[]{commandLine.getThreads().get()}
+                : Arrays.stream(System.getProperty("benchmark.threads", "1,4,16").split(","))
+                        .map(String::trim)
+                        .mapToInt(Integer::parseInt)
+                        .toArray();
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output.resolve("results-" + threads + "-threads.json").toString())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.minibank.benchmark;
+
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.service.CustomerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer creation through {@link CustomerService}, including the check that the email address is
+ * not taken yet. The customers table grows by one row per operation during a trial.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Customers {
+
+        @Param({"100", "10000"})
+        public int accounts;
+
+        BenchmarkApplication application;
+        CustomerService customerService;
+
+        @Setup(Level.Trial)
+        public void start() {
+            application = BenchmarkApplication.start(TransferProperties.Mode.STANDARD);
+            customerService = application.getBean(CustomerService.class);
+            application.openAccounts(accounts);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            application.close();
+        }
+    }
+
+    @Benchmark
+    public Object createCustomer(Customers customers) {
+        return customers.customerService.createCustomer(customers.application.newCustomer());
+    }
+}
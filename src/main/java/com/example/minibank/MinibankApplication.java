@@ -1,15 +1,25 @@
 package com.example.minibank;
 
+import com.example.minibank.migration.MigrationCommand;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+
+import java.util.Arrays;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @OpenAPIDefinition(info = @Info(title = "Minibank API", version = "1.0", description = "Create customers, open their accounts and make deposits and transfers using minibank REST APIs"))
 public class MinibankApplication {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(MigrationCommand.NAME)) {
+            MigrationCommand.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         SpringApplication.run(MinibankApplication.class, args);
     }
 
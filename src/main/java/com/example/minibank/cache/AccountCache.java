@@ -0,0 +1,60 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.config.AccountCacheProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.repository.AccountRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Read-through cache of account summaries keyed by account code.
+ *
+ * <p>Callers that change an account hand it to {@link #update} once their transaction has committed.
+ * Summaries only ever replace ones with a lower version, so a slow database read or an out of order
+ * update cannot overwrite a newer balance. Changes made without going through here, such as the
+ * ledger's background writes, are visible after {@link #invalidate} or once the entry expires.
+ */
+@Component
+public class AccountCache {
+
+    private final AccountRepository accountRepository;
+    private final BoundedCache<String, AccountSummary> summaries;
+
+    public AccountCache(AccountRepository accountRepository, AccountCacheProperties accountCacheProperties,
+                        MetricsRegistry metricsRegistry) {
+        this.accountRepository = accountRepository;
+        this.summaries = new BoundedCache<>("accounts", accountCacheProperties.getMaximumSize(),
+                accountCacheProperties.getTimeToLive(), metricsRegistry);
+    }
+
+    public Optional<AccountSummary> get(String code) {
+        Optional<AccountSummary> cached = summaries.get(code);
+
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<AccountSummary> loaded = accountRepository.findSummaryByCode(code);
+        loaded.ifPresent(this::store);
+
+        return loaded;
+    }
+
+    /**
+     * Must only be called with an account whose changes have been committed.
+     */
+    public void update(Account account) {
+        store(AccountSummary.of(account));
+    }
+
+    public void invalidate(String code) {
+        summaries.invalidate(code);
+    }
+
+    private void store(AccountSummary summary) {
+        summaries.merge(summary.code(), summary, (existing, given) -> existing.isNewerThan(given) ? existing : given);
+    }
+}
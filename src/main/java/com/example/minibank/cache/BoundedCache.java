@@ -0,0 +1,148 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.metrics.Counter;
+import com.example.minibank.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded, thread-safe cache whose entries expire a fixed time after they were written.
+ *
+ * <p>Keys are spread over independently locked segments, each evicting its least recently used
+ * entry when it is full, so eviction order is LRU per segment and approximately LRU overall.
+ * Lookups, evictions and expirations are counted in {@code minibank_cache_requests_total} and
+ * {@code minibank_cache_evictions_total}, tagged with the cache name.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int MAXIMUM_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long timeToLiveNanos;
+    private final LongSupplier ticker;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expirations;
+
+    public BoundedCache(String name, int maximumSize, Duration timeToLive, MetricsRegistry metricsRegistry) {
+        this(name, maximumSize, timeToLive, metricsRegistry, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    BoundedCache(String name, int maximumSize, Duration timeToLive, MetricsRegistry metricsRegistry, LongSupplier ticker) {
+        int segmentCount = Math.max(1, Math.min(MAXIMUM_SEGMENTS, maximumSize));
+        int segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+
+        this.segments = new Segment[segmentCount];
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.ticker = ticker;
+        this.hits = metricsRegistry.counter("minibank_cache_requests_total", "cache", name, "result", "hit");
+        this.misses = metricsRegistry.counter("minibank_cache_requests_total", "cache", name, "result", "miss");
+        this.sizeEvictions = metricsRegistry.counter("minibank_cache_evictions_total", "cache", name, "cause", "size");
+        this.expirations = metricsRegistry.counter("minibank_cache_evictions_total", "cache", name, "cause", "expired");
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity, sizeEvictions);
+        }
+    }
+
+    public Optional<V> get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+
+            if (entry != null && entry.expiresAt() - ticker.getAsLong() <= 0) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+
+            hits.increment();
+            return Optional.of(entry.value());
+        }
+    }
+
+    public void put(K key, V value) {
+        merge(key, value, (existing, given) -> given);
+    }
+
+    /**
+     * Stores the result of {@code remapping.apply(existing, value)}, or {@code value} if there is no
+     * live entry for the key. The expiry time is reset either way.
+     */
+    public void merge(K key, V value, BinaryOperator<V> remapping) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = ticker.getAsLong();
+
+        synchronized (segment) {
+            Entry<V> existing = segment.get(key);
+            V merged = (existing != null && existing.expiresAt() - now > 0)
+                    ? remapping.apply(existing.value(), value)
+                    : value;
+
+            segment.put(key, new Entry<>(merged, now + timeToLiveNanos));
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        private final int capacity;
+        private final Counter evictions;
+
+        Segment(int capacity, Counter evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+
+            evictions.increment();
+            return true;
+        }
+    }
+}
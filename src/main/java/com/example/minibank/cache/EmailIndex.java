@@ -0,0 +1,144 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.config.EmailIndexProperties;
+import com.example.minibank.metrics.Counter;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Emails of all customers, held in memory so that checking whether an email is taken does not have to
+ * query the database when it clearly is not. A Bloom filter answers most of those checks; the rare
+ * email it lets through is looked up in a set of all emails. Only when the set has it too is the
+ * database asked, which stays the authority on whether the email is taken.
+ *
+ * <p>Emails are normalized to lower case without surrounding whitespace, which can only make the index
+ * report an email as possibly taken more often than the database would, never less.
+ *
+ * <p>The index is loaded from the customers table once the application is ready and kept current by
+ * {@link #add}. Emails are never removed, so one a customer changed away from only costs a query
+ * when it is used again. Until the index is loaded, and when disabled, every email is reported as
+ * possibly taken. Customers created by another instance are not in the index, so the unique constraint
+ * on the email column is what rejects them.
+ */
+@Component
+public class EmailIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailIndex.class);
+
+    private final CustomerRepository customerRepository;
+    private final EmailIndexProperties emailIndexProperties;
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+    private final Counter negatives;
+    private final Counter possiblyTaken;
+    private volatile BloomFilter filter;
+    private volatile boolean loaded;
+
+    public EmailIndex(CustomerRepository customerRepository, EmailIndexProperties emailIndexProperties,
+                      MetricsRegistry metricsRegistry) {
+        this.customerRepository = customerRepository;
+        this.emailIndexProperties = emailIndexProperties;
+        this.filter = new BloomFilter(emailIndexProperties.getExpectedInsertions(),
+                emailIndexProperties.getFalsePositiveProbability());
+        this.negatives = metricsRegistry.counter("minibank_email_index_lookups_total", "result", "not_taken");
+        this.possiblyTaken = metricsRegistry.counter("minibank_email_index_lookups_total", "result", "possibly_taken");
+        metricsRegistry.gauge("minibank_email_index_size", () -> emails.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!emailIndexProperties.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ensureCapacity(customerRepository.count());
+
+        try (Stream<String> customerEmails = customerRepository.streamAllEmails()) {
+            customerEmails.forEach(this::add);
+        }
+
+        loaded = true;
+        log.info("Indexed {} customer emails in {} ms", emails.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return {@code false} only if no customer has the email
+     */
+    public boolean mightBeTaken(String email) {
+        if (!loaded || email == null) {
+            return true;
+        }
+
+        String normalized = normalize(email);
+
+        if (filter.mightContain(normalized) && emails.contains(normalized)) {
+            possiblyTaken.increment();
+            return true;
+        }
+
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Adds the email of a new customer, or the new email of a customer. Should be called once it has been
+     * written; an email added but then rolled back only costs a database query when it is used again.
+     */
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+
+        String normalized = normalize(email);
+
+        if (!emails.add(normalized)) {
+            return;
+        }
+
+        BloomFilter current;
+
+        // Put into whichever filter is current once done, as a rebuild may have missed the email
+        do {
+            current = filter;
+            current.put(normalized);
+        } while (current != filter);
+
+        ensureCapacity(emails.size());
+    }
+
+    private void ensureCapacity(long size) {
+        if (size <= filter.getExpectedInsertions()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (size <= filter.getExpectedInsertions()) {
+                return;
+            }
+
+            BloomFilter larger = new BloomFilter(Math.max(size, filter.getExpectedInsertions()) * 2,
+                    emailIndexProperties.getFalsePositiveProbability());
+            emails.forEach(larger::put);
+            filter = larger;
+        }
+    }
+
+    /**
+     * @return the email as the index compares it
+     */
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
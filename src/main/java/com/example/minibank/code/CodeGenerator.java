@@ -0,0 +1,13 @@
+package com.example.minibank.code;
+
+/**
+ * Generates the public codes of customers, accounts and transfers. Codes are strings in the canonical
+ * 36 character UUID form, which is what the {@code code} columns hold.
+ */
+public interface CodeGenerator {
+
+    /**
+     * @return a code not returned before, safe to call from any thread
+     */
+    String nextCode();
+}
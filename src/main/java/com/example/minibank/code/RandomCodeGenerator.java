@@ -0,0 +1,14 @@
+package com.example.minibank.code;
+
+import java.util.UUID;
+
+/**
+ * Random version 4 UUIDs, as codes were generated before they became time-ordered.
+ */
+public class RandomCodeGenerator implements CodeGenerator {
+
+    @Override
+    public String nextCode() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.minibank.code;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Version 7 UUIDs, which start with the time they were generated at in milliseconds, so new codes sort
+ * after older ones and are added at the end of the indexes on {@code code} instead of at random places.
+ * Laid out as
+ * <pre>
+ * 48 bits  Unix time in milliseconds
+ *  4 bits  version, 7
+ * 12 bits  high bits of the sequence
+ *  2 bits  variant
+ * 10 bits  low bits of the sequence
+ * 16 bits  node id
+ * 16 bits  lane of the generating thread
+ * 20 bits  random
+ * </pre>
+ *
+ * <p>Every thread counts its own sequence within each millisecond, so generating a code takes no lock
+ * and no shared write. Threads are told apart by a lane assigned on first use, and instances by the
+ * node id, which has to be configured to be different on every instance for codes to be guaranteed
+ * unique across them. The random bits, from {@link ThreadLocalRandom} rather than {@code SecureRandom},
+ * separate threads sharing a lane once more than 65536 have generated codes.
+ *
+ * <p>Codes from one thread are strictly increasing, even if the clock goes back. A thread that uses up
+ * the sequence of a millisecond carries on in the next one.
+ */
+public class TimeOrderedCodeGenerator implements CodeGenerator {
+
+    private static final int SEQUENCE_BITS = 22;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final AtomicInteger lanes = new AtomicInteger();
+    private final ThreadLocal<ThreadState> threadStates = ThreadLocal.withInitial(() -> new ThreadState(lanes.getAndIncrement()));
+
+    /**
+     * @param nodeId between 0 and 65535
+     */
+    public TimeOrderedCodeGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > 0xFFFF) {
+            throw new IllegalArgumentException("Node id must be between 0 and 65535, was " + nodeId);
+        }
+
+        this.nodeBits = (long) nodeId << 36;
+    }
+
+    @Override
+    public String nextCode() {
+        ThreadState state = threadStates.get();
+        long now = System.currentTimeMillis();
+
+        if (now > state.millis) {
+            state.millis = now;
+            state.sequence = 0;
+        } else if (state.sequence == MAX_SEQUENCE) {
+            state.millis++;
+            state.sequence = 0;
+        } else {
+            state.sequence++;
+        }
+
+        long sequence = state.sequence;
+        long mostSignificantBits = (state.millis << 16) | 0x7000L | (sequence >>> 10);
+        long leastSignificantBits = 0x8000000000000000L
+                | ((sequence & 0x3FF) << 52)
+                | nodeBits
+                | state.laneBits
+                | ThreadLocalRandom.current().nextInt(1 << 20);
+
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+
+    private static class ThreadState {
+
+        private final long laneBits;
+        private long millis;
+        private int sequence;
+
+        private ThreadState(int lane) {
+            this.laneBits = (long) (lane & 0xFFFF) << 20;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-process cache of account summaries.
+ */
+@ConfigurationProperties(prefix = "minibank.account-cache")
+public class AccountCacheProperties {
+
+    /**
+     * Maximum number of accounts kept, least recently used ones are evicted first.
+     */
+    private int maximumSize = 10_000;
+
+    /**
+     * How long a cached account is served before it is read from the database again.
+     */
+    private Duration timeToLive = Duration.ofSeconds(30);
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the asynchronous Account API, served when the {@code async} profile is active.
+ */
+@ConfigurationProperties(prefix = "minibank.async")
+public class AsyncProperties {
+
+    /**
+     * Number of threads running account operations. More threads than database connections only
+     * adds threads waiting for a connection.
+     */
+    private int poolSize = 10;
+
+    /**
+     * Maximum number of account operations waiting for a thread. Requests beyond that are rejected
+     * with 503 Service Unavailable.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * How long a request may wait for its account operation before it times out.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.minibank.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for the asynchronous Account API. Account operations run on its threads while the
+ * request's servlet thread goes back to the connector, so open connections are no longer limited
+ * by the number of servlet threads, only by the connector's connection limit.
+ */
+@Configuration
+@Profile("async")
+public class AsyncWebConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor accountTaskExecutor(AsyncProperties asyncProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("account-");
+        executor.setCorePoolSize(asyncProperties.getPoolSize());
+        executor.setMaxPoolSize(asyncProperties.getPoolSize());
+        executor.setQueueCapacity(asyncProperties.getQueueCapacity());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+
+        return executor;
+    }
+}
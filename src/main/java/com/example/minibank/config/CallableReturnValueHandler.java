@@ -0,0 +1,106 @@
+package com.example.minibank.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the {@link Callable} a handler method returns. With an executor, the {@code accountTaskExecutor}
+ * of the {@code async} profile, it runs there as a {@link WebAsyncTask} bounded by the timeout, and the
+ * servlet thread is released meanwhile. Without one it is called right away on the request thread, and
+ * its result handled as if the handler method had returned it, so no async dispatch takes place.
+ */
+public class CallableReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HandlerMethodReturnValueHandlerComposite resultHandlers = new HandlerMethodReturnValueHandlerComposite();
+    private final AsyncTaskExecutor executor;
+    private final long timeoutMillis;
+
+    /**
+     * @param resultHandlers the handlers results are passed to when called on the request thread
+     * @param executor       the executor to run on, or {@code null} to call on the request thread
+     */
+    CallableReturnValueHandler(List<HandlerMethodReturnValueHandler> resultHandlers, AsyncTaskExecutor executor,
+                               Duration timeout) {
+        this.resultHandlers.addHandlers(resultHandlers);
+        this.executor = executor;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return Callable.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        if (returnValue == null) {
+            mavContainer.setRequestHandled(true);
+            return;
+        }
+
+        Callable<?> callable = (Callable<?>) returnValue;
+
+        if (executor != null) {
+            WebAsyncUtils.getAsyncManager(webRequest)
+                    .startCallableProcessing(new WebAsyncTask<>(timeoutMillis, executor, callable), mavContainer);
+            return;
+        }
+
+        Object result = callable.call();
+        resultHandlers.handleReturnValue(result, new ResultMethodParameter(returnType, result), mavContainer, webRequest);
+    }
+
+    /**
+     * The return type of the handler method with the {@link Callable} unwrapped, the same way Spring
+     * describes the result of an async dispatch.
+     */
+    private static class ResultMethodParameter extends MethodParameter {
+
+        private final Object result;
+        private final ResolvableType resultType;
+
+        private ResultMethodParameter(MethodParameter returnType, Object result) {
+            super(returnType);
+            this.result = result;
+            this.resultType = ResolvableType.forMethodParameter(returnType).getGeneric();
+        }
+
+        private ResultMethodParameter(ResultMethodParameter original) {
+            super(original);
+            this.result = original.result;
+            this.resultType = original.resultType;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            if (result != null) {
+                return result.getClass();
+            }
+
+            return (resultType != ResolvableType.NONE) ? resultType.toClass() : super.getParameterType();
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return resultType.getType();
+        }
+
+        @Override
+        public ResultMethodParameter clone() {
+            return new ResultMethodParameter(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.minibank.config;
+
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.code.RandomCodeGenerator;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Configuration
+public class CodeGeneratorConfig {
+
+    @Bean
+    public CodeGenerator codeGenerator(CodeProperties codeProperties) {
+        if (codeProperties.getGenerator() == CodeProperties.Generator.RANDOM) {
+            return new RandomCodeGenerator();
+        }
+
+        int nodeId = (codeProperties.getNodeId() != null)
+                ? codeProperties.getNodeId()
+                : ThreadLocalRandom.current().nextInt(0x10000);
+
+        return new TimeOrderedCodeGenerator(nodeId);
+    }
+}
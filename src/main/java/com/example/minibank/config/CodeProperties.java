@@ -0,0 +1,46 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for how customer, account and transfer codes are generated.
+ */
+@ConfigurationProperties(prefix = "minibank.codes")
+public class CodeProperties {
+
+    public enum Generator {
+        /**
+         * Version 7 UUIDs, ordered by the time they were generated at.
+         */
+        TIME_ORDERED,
+        /**
+         * Random version 4 UUIDs.
+         */
+        RANDOM
+    }
+
+    private Generator generator = Generator.TIME_ORDERED;
+
+    /**
+     * Identifies this instance within time-ordered codes, between 0 and 65535. Must be different on every
+     * instance sharing a database for codes to be guaranteed unique; when not set, a random one is picked
+     * at startup.
+     */
+    private Integer nodeId;
+
+    public Generator getGenerator() {
+        return generator;
+    }
+
+    public void setGenerator(Generator generator) {
+        this.generator = generator;
+    }
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Integer nodeId) {
+        this.nodeId = nodeId;
+    }
+}
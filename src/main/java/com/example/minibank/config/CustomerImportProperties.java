@@ -0,0 +1,37 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for bulk customer imports through {@code POST /customers/import}.
+ */
+@ConfigurationProperties(prefix = "minibank.customer-import")
+public class CustomerImportProperties {
+
+    /**
+     * Number of records validated, checked for taken emails and inserted together. Each chunk is
+     * committed in its own transaction and its results are sent before the next one is read.
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Number of threads records are parsed and validated on, shared by all imports.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the in-memory index of customer emails, which spares signups the query for whether
+ * their email is taken.
+ */
+@ConfigurationProperties(prefix = "minibank.email-index")
+public class EmailIndexProperties {
+
+    /**
+     * When disabled, every signup and email change queries the database.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of customers the Bloom filter is sized for at first. It is rebuilt twice as large whenever
+     * more customers than that are indexed.
+     */
+    private long expectedInsertions = 100_000;
+
+    /**
+     * Share of emails not taken that the Bloom filter lets through to the exact check.
+     */
+    private double falsePositiveProbability = 0.01;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for replaying responses to transfer and deposit requests retried with the same
+ * {@code Idempotency-Key} header.
+ */
+@ConfigurationProperties(prefix = "minibank.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Maximum number of responses kept in memory. Older ones are still replayed, from the database.
+     */
+    private int maximumSize = 10_000;
+
+    /**
+     * How long a response is replayed for. A key sent again after that is treated as a new request.
+     */
+    private Duration timeToLive = Duration.ofHours(24);
+
+    /**
+     * How long a key stays claimed by a request that has not completed. A claim left behind by an instance
+     * that stopped while handling the request, or by a request that failed with its outcome in doubt, can be
+     * taken over after that, so it should outlast the ledger write timeout and the async timeout.
+     */
+    private Duration claimTimeout = Duration.ofMinutes(1);
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Duration getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public void setClaimTimeout(Duration claimTimeout) {
+        this.claimTimeout = claimTimeout;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory ledger engine, used when {@code minibank.transfer.mode=ledger}.
+ */
+@ConfigurationProperties(prefix = "minibank.ledger")
+public class LedgerProperties {
+
+    /**
+     * Number of single-writer shards account balances are partitioned into.
+     */
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of ledger entries written to the database in one transaction.
+     */
+    private int persistBatchSize = 500;
+
+    /**
+     * How long a deposit or transfer waits for a shard to apply it and for the change to be made durable.
+     * A request that runs out of time fails with 503, and may still complete afterwards if it had started.
+     */
+    private Duration writeTimeout = Duration.ofSeconds(10);
+
+    private final Journal journal = new Journal();
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getPersistBatchSize() {
+        return persistBatchSize;
+    }
+
+    public void setPersistBatchSize(int persistBatchSize) {
+        this.persistBatchSize = persistBatchSize;
+    }
+
+    public Duration getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Append-only journal of deposits and transfers. When enabled, an operation is acknowledged once
+     * it is on disk in the journal, and balances and transfers in the database are updated from the
+     * journal in the background.
+     */
+    public static class Journal {
+
+        private boolean enabled = false;
+
+        /**
+         * Directory the journal segment files are kept in.
+         */
+        private String directory = "data/journal";
+
+        /**
+         * Size of each memory-mapped segment file. A new segment is started when the current one is full.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the versioned schema migrations.
+ */
+@ConfigurationProperties(prefix = "minibank.migration")
+public class MigrationProperties {
+
+    /**
+     * Whether pending migrations are applied at startup. Disable when they are applied by a
+     * separate {@code migrate} step before the application is rolled out.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Where migration scripts are found. {@code {vendor}} is replaced with the database vendor,
+     * e.g. {@code h2} or {@code postgresql}.
+     */
+    private String location = "classpath:db/migration/{vendor}";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for how deposits and transfers are executed against the database.
+ */
+@ConfigurationProperties(prefix = "minibank.transfer")
+public class TransferProperties {
+
+    public enum Mode {
+        /**
+         * Accounts are loaded without locks inside one transaction per request, and their version is
+         * checked when the transaction commits.
+         */
+        STANDARD,
+        /**
+         * Accounts are locked with {@code SELECT ... FOR UPDATE} in ascending id order before being changed.
+         */
+        PESSIMISTIC,
+        /**
+         * Balances are kept in memory by {@link com.example.minibank.ledger.LedgerEngine}.
+         */
+        LEDGER
+    }
+
+    private Mode mode = Mode.STANDARD;
+
+    private final Retry retry = new Retry();
+
+    private final DepositCoalescing depositCoalescing = new DepositCoalescing();
+
+    private final Queue queue = new Queue();
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public DepositCoalescing getDepositCoalescing() {
+        return depositCoalescing;
+    }
+
+    public Queue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Retries of transactions that failed because of version conflicts, lock timeouts or deadlocks.
+     */
+    public static class Retry {
+
+        /**
+         * Total number of attempts, including the first one.
+         */
+        private int maxAttempts = 3;
+
+        private Duration initialBackoff = Duration.ofMillis(20);
+
+        private Duration maxBackoff = Duration.ofMillis(500);
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+
+    /**
+     * Deposits into the same account arriving within a window of each other are applied together, in
+     * one transaction. Only used in standard and pessimistic mode.
+     */
+    public static class DepositCoalescing {
+
+        /**
+         * How long the first deposit into an account waits for others to join it, e.g. {@code 500us}
+         * or {@code 2ms}. Zero applies every deposit on its own.
+         */
+        private Duration window = Duration.ZERO;
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public boolean isEnabled() {
+            return !window.isZero() && !window.isNegative();
+        }
+    }
+
+    /**
+     * Transfers submitted with {@code POST /accounts/{code}/transfers:submit}, which are queued and
+     * executed in the background.
+     */
+    public static class Queue {
+
+        /**
+         * Maximum number of transfers waiting to be executed, split evenly between the workers.
+         * Submissions beyond it are rejected with 503.
+         */
+        private int capacity = 10_000;
+
+        /**
+         * Number of worker threads. Transfers from the same account are always executed by the same
+         * worker, in the order they were submitted.
+         */
+        private int workers = 2;
+
+        /**
+         * Maximum number of queued transfers a worker takes at once. Those from the same account are
+         * executed as one batch, in one transaction.
+         */
+        private int batchSize = 100;
+
+        /**
+         * How long the outcome of an executed transfer is kept and reported. Completed transfers are
+         * looked up in the database once it is no longer kept, failed ones are then no longer found.
+         */
+        private Duration statusTimeToLive = Duration.ofHours(1);
+
+        /**
+         * Maximum number of outcomes kept, of all the transfers executed within status-time-to-live.
+         * Beyond it the oldest are evicted early, so it should cover what is submitted in that time.
+         */
+        private int statusMaximumSize = 100_000;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getStatusTimeToLive() {
+            return statusTimeToLive;
+        }
+
+        public void setStatusTimeToLive(Duration statusTimeToLive) {
+            this.statusTimeToLive = statusTimeToLive;
+        }
+
+        public int getStatusMaximumSize() {
+            return statusMaximumSize;
+        }
+
+        public void setStatusMaximumSize(int statusMaximumSize) {
+            this.statusMaximumSize = statusMaximumSize;
+        }
+    }
+}
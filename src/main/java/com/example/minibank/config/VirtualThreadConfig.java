@@ -0,0 +1,67 @@
+package com.example.minibank.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and the transactional service calls made on the request thread, on a new
+ * virtual thread instead of a Tomcat worker thread. Streamed responses are written on virtual
+ * threads too. Enabled with {@code minibank.virtual-threads.enabled=true}, on Java 21 or later.
+ *
+ * <p>With no thread pool left to bound concurrency, requests queue for a database connection
+ * instead: Hikari parks waiting threads without holding a lock, so a virtual thread waiting for a
+ * connection releases its carrier. The connection pool size becomes the limit on concurrent
+ * transactions, and {@code spring.datasource.hikari.connection-timeout} the limit on how long a
+ * request waits for one.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "minibank.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private static final int MINIMUM_JAVA_VERSION = 21;
+
+    private final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return virtualThreadExecutor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+    }
+
+    /**
+     * Looked up reflectively, since the application is compiled for Java 17.
+     *
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        int javaVersion = Runtime.version().feature();
+
+        if (javaVersion < MINIMUM_JAVA_VERSION) {
+            throw new IllegalStateException("minibank.virtual-threads.enabled needs Java " + MINIMUM_JAVA_VERSION +
+                    " or later, running on Java " + javaVersion);
+        }
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual thread executor", ex);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.minibank.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    /**
+     * Lets a single JSON object be written to clients that asked for NDJSON, so an error raised
+     * before a stream starts still reaches them as one NDJSON line.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter jsonConverter) {
+                List<MediaType> mediaTypes = new ArrayList<>(jsonConverter.getSupportedMediaTypes());
+                mediaTypes.add(APPLICATION_NDJSON);
+                jsonConverter.setSupportedMediaTypes(mediaTypes);
+            }
+        }
+    }
+
+    /**
+     * Puts the {@link CallableReturnValueHandler} ahead of Spring's own handling of {@code Callable}, running
+     * handler methods on the {@code accountTaskExecutor} when the {@code async} profile defines one.
+     */
+    @Bean
+    public static BeanPostProcessor callableReturnValueHandlerPostProcessor(
+            @Qualifier("accountTaskExecutor") ObjectProvider<AsyncTaskExecutor> accountTaskExecutor,
+            ObjectProvider<AsyncProperties> asyncProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof RequestMappingHandlerAdapter adapter && adapter.getReturnValueHandlers() != null) {
+                    List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(adapter.getReturnValueHandlers());
+                    handlers.add(0, new CallableReturnValueHandler(adapter.getReturnValueHandlers(),
+                            accountTaskExecutor.getIfAvailable(), asyncProperties.getObject().getTimeout()));
+                    adapter.setReturnValueHandlers(handlers);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
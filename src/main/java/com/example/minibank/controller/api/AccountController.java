@@ -2,63 +2,185 @@ package com.example.minibank.controller.api;
 
 import com.example.minibank.controller.request.DepositRequest;
 import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.controller.response.TransferResult;
+import com.example.minibank.controller.response.TransferSubmission;
+import com.example.minibank.model.TransferDirection;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.AccountView;
+import com.example.minibank.model.view.TransferView;
 import com.example.minibank.service.AccountService;
 import com.example.minibank.model.Account;
-import com.example.minibank.model.Transfer;
+import com.example.minibank.service.TransferHistoryFilter;
+import com.example.minibank.service.TransferService;
+import com.example.minibank.service.TransferSubmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.Callable;
+
+/**
+ * Account operations are returned as a {@link Callable}. By default it is called right away on the
+ * request thread; with the {@code async} profile it runs on the bounded {@code accountTaskExecutor}
+ * while the servlet thread is released, see {@link com.example.minibank.config.CallableReturnValueHandler}.
+ * Streamed responses are written the same way in both.
+ */
 @RestController
 @RequestMapping(path = "/accounts")
 @Tag(name = "Account API", description = "Account related APIs. Read, add, update, deposit and transfer")
 public class AccountController {
 
     private final AccountService accountService;
+    private final TransferService transferService;
+    private final TransferSubmissionService transferSubmissionService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, TransferService transferService,
+                             TransferSubmissionService transferSubmissionService, ObjectMapper objectMapper) {
         this.accountService = accountService;
+        this.transferService = transferService;
+        this.transferSubmissionService = transferSubmissionService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<Account>> getAllAccounts() {
-        List<Account> accountsList = accountService.getAllAccounts();
+    public Callable<ResponseEntity<List<AccountView>>> getAllAccounts() {
+        return () -> {
+            List<AccountView> accountsList = accountService.getAllAccounts();
+
+            return new ResponseEntity<>(accountsList, HttpStatus.OK);
+        };
+    }
+
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllAccounts() {
+        return NdjsonWriter.stream(objectMapper, writer -> accountService.streamAccounts(writer::write));
+    }
+
+    @GetMapping(path = "page")
+    public Callable<ResponseEntity<CursorPage<AccountView>>> getAccounts(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + CursorPage.DEFAULT_SIZE) int size) {
+        return () -> {
+            CursorPage<AccountView> accounts = accountService.getAccounts(cursor, size);
 
-        return new ResponseEntity<>(accountsList, HttpStatus.OK);
+            return new ResponseEntity<>(accounts, HttpStatus.OK);
+        };
     }
 
     @GetMapping(path = "{code}")
-    public ResponseEntity<Account> getAccount(@PathVariable("code") String code) {
-        Account account = accountService.getAccount(code);
+    public Callable<ResponseEntity<Account>> getAccount(@PathVariable("code") String code) {
+        return () -> {
+            Account account = accountService.getAccount(code);
 
-        return new ResponseEntity<>(account, HttpStatus.OK);
+            return new ResponseEntity<>(account, HttpStatus.OK);
+        };
+    }
+
+    @GetMapping(path = "{code}/summary")
+    public Callable<ResponseEntity<AccountSummary>> getAccountSummary(@PathVariable("code") String code) {
+        return () -> {
+            AccountSummary account = accountService.getAccountSummary(code);
+
+            return new ResponseEntity<>(account, HttpStatus.OK);
+        };
     }
 
     @GetMapping(path = "{code}/transfers")
-    public ResponseEntity<Map<String, List<Transfer>>> getAllTransfers(@PathVariable("code") String code) {
-        Map<String, List<Transfer>> transfers = accountService.getAllTransfers(code);
+    public Callable<ResponseEntity<Map<String, List<TransferView>>>> getAllTransfers(@PathVariable("code") String code) {
+        return () -> {
+            Map<String, List<TransferView>> transfers = accountService.getAllTransfers(code);
+
+            return new ResponseEntity<>(transfers, HttpStatus.OK);
+        };
+    }
 
-        return new ResponseEntity<>(transfers, HttpStatus.OK);
+    @GetMapping(path = "{code}/transfers/history")
+    public Callable<ResponseEntity<CursorPage<TransferView>>> getTransferHistory(
+            @PathVariable("code") String code,
+            @RequestParam(name = "direction", required = false) TransferDirection direction,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + CursorPage.DEFAULT_SIZE) int size) {
+        return () -> {
+            TransferHistoryFilter filter = transferService.historyFilter(code, direction, from, to);
+            CursorPage<TransferView> transfers = transferService.getTransferHistory(filter, cursor, size);
+
+            return new ResponseEntity<>(transfers, HttpStatus.OK);
+        };
+    }
+
+    @GetMapping(path = "{code}/transfers/history", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamTransferHistory(
+            @PathVariable("code") String code,
+            @RequestParam(name = "direction", required = false) TransferDirection direction,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        TransferHistoryFilter filter = transferService.historyFilter(code, direction, from, to);
+
+        return NdjsonWriter.stream(objectMapper, writer -> transferService.streamTransferHistory(filter, writer::write));
     }
 
     @PostMapping(path = "{code}/transfers")
-    public ResponseEntity<Void> transferAmount(@PathVariable("code") String code, @RequestBody TransferRequest transferRequest) {
-        accountService.transfer(code, transferRequest);
+    public Callable<ResponseEntity<Void>> transferAmount(@PathVariable("code") String code, @Valid @RequestBody TransferRequest transferRequest) {
+        return () -> {
+            accountService.transfer(code, transferRequest);
+
+            return ResponseEntity.noContent().build();
+        };
+    }
+
+    @PostMapping(path = "{code}/transfers:batch")
+    public Callable<ResponseEntity<List<TransferResult>>> transferAmountBatch(@PathVariable("code") String code, @RequestBody List<TransferRequest> transferRequests) {
+        return () -> {
+            List<TransferResult> results = accountService.transferBatch(code, transferRequests);
+
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Queues the transfer and answers with 202 once it is validated, without waiting for it to be
+     * executed. Its outcome is at the {@code Location} of the response.
+     */
+    @PostMapping(path = "{code}/transfers:submit")
+    public Callable<ResponseEntity<TransferSubmission>> submitTransfer(@PathVariable("code") String code, @Valid @RequestBody TransferRequest transferRequest,
+                                                                       UriComponentsBuilder uriBuilder) {
+        return () -> {
+            TransferSubmission submission = transferSubmissionService.submit(code, transferRequest);
+
+            return ResponseEntity.accepted()
+                    .location(uriBuilder.path(TransferSubmission.LOCATION).buildAndExpand(code, submission.getTransferCode()).toUri())
+                    .body(submission);
+        };
+    }
 
-        return ResponseEntity.noContent().build();
+    @GetMapping(path = "{code}/transfers/{transferCode}/status")
+    public Callable<ResponseEntity<TransferSubmission>> getTransferSubmission(@PathVariable("code") String code,
+                                                                              @PathVariable("transferCode") String transferCode) {
+        return () -> new ResponseEntity<>(transferSubmissionService.getSubmission(code, transferCode), HttpStatus.OK);
     }
 
     @PutMapping(path = "{code}/deposit")
-    public ResponseEntity<Account> depositAmount(@PathVariable("code") String code, @RequestBody DepositRequest depositRequest) {
-        Account account = accountService.deposit(code, depositRequest);
+    public Callable<ResponseEntity<Account>> depositAmount(@PathVariable("code") String code, @RequestBody DepositRequest depositRequest) {
+        return () -> {
+            Account account = accountService.deposit(code, depositRequest);
 
-        return new ResponseEntity<>(account, HttpStatus.OK);
+            return new ResponseEntity<>(account, HttpStatus.OK);
+        };
     }
 
 }
@@ -1,8 +1,12 @@
 package com.example.minibank.controller.api;
 
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.service.CustomerImportService;
 import com.example.minibank.service.CustomerService;
 import com.example.minibank.model.Account;
 import com.example.minibank.model.Customer;
+import com.example.minibank.model.view.CustomerView;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springdoc.core.annotations.RouterOperation;
@@ -10,8 +14,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -19,23 +31,44 @@ import java.util.List;
 @Tag(name = "Customer API", description = "Customer related APIs. Read, add, update and open new account for customers")
 public class CustomerController {
 
+    static final String TEXT_CSV = "text/csv";
+
     private final CustomerService customerService;
+    private final CustomerImportService customerImportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, CustomerImportService customerImportService,
+                              ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerImportService = customerImportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<Customer>> getAllCustomers() {
-        List<Customer> customerList = customerService.getAllCustomers();
+    public ResponseEntity<List<CustomerView>> getAllCustomers() {
+        List<CustomerView> customerList = customerService.getAllCustomers();
 
         return new ResponseEntity<>(customerList, HttpStatus.OK);
     }
 
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllCustomers() {
+        return NdjsonWriter.stream(objectMapper, writer -> customerService.streamCustomers(writer::write));
+    }
+
+    @GetMapping(path = "page")
+    public ResponseEntity<CursorPage<CustomerView>> getCustomers(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + CursorPage.DEFAULT_SIZE) int size) {
+        CursorPage<CustomerView> customers = customerService.getCustomers(cursor, size);
+
+        return new ResponseEntity<>(customers, HttpStatus.OK);
+    }
+
     @GetMapping(path = "{code}")
-    public ResponseEntity<Customer> getCustomer(@PathVariable("code") String code) {
-        Customer customer = customerService.getCustomer(code);
+    public ResponseEntity<CustomerView> getCustomer(@PathVariable("code") String code) {
+        CustomerView customer = customerService.getCustomer(code);
 
         return new ResponseEntity<>(customer, HttpStatus.OK);
     }
@@ -47,6 +80,27 @@ public class CustomerController {
         return new ResponseEntity<>(newlyAddedCustomer, HttpStatus.OK);
     }
 
+    @PostMapping(path = "onboard")
+    public ResponseEntity<Account> onboardCustomer(@Valid @RequestBody Customer customer) {
+        Account newAccount = customerService.createCustomerWithAccount(customer);
+
+        return new ResponseEntity<>(newAccount, HttpStatus.OK);
+    }
+
+    @PostMapping(path = "import", consumes = NdjsonWriter.MEDIA_TYPE, produces = NdjsonWriter.MEDIA_TYPE)
+    public void importCustomersFromNdjson(
+            @RequestParam(name = "openAccounts", defaultValue = "false") boolean openAccounts,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        importCustomers(CustomerImportService.Format.NDJSON, openAccounts, request, response);
+    }
+
+    @PostMapping(path = "import", consumes = TEXT_CSV, produces = NdjsonWriter.MEDIA_TYPE)
+    public void importCustomersFromCsv(
+            @RequestParam(name = "openAccounts", defaultValue = "false") boolean openAccounts,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        importCustomers(CustomerImportService.Format.CSV, openAccounts, request, response);
+    }
+
     @PutMapping(path = "{code}")
     public ResponseEntity<Customer> updateCustomer(@PathVariable("code") String code, @Valid @RequestBody Customer customer) {
         Customer updatedCustomer = customerService.updateCustomer(code, customer);
@@ -60,4 +114,22 @@ public class CustomerController {
 
         return new ResponseEntity<>(newAccount, HttpStatus.OK);
     }
+
+    /**
+     * Results are written as each chunk of the import is committed, on the request thread, since an
+     * import of millions of customers outlasts any async request timeout.
+     */
+    private void importCustomers(CustomerImportService.Format format, boolean openAccounts,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Charset charset = (request.getCharacterEncoding() != null)
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), charset));
+        NdjsonWriter writer = NdjsonWriter.to(objectMapper, response);
+
+        customerImportService.importCustomers(reader, format, openAccounts, results -> {
+            results.forEach(writer::write);
+            writer.flush();
+        });
+    }
 }
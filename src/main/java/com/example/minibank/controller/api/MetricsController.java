@@ -0,0 +1,28 @@
+package com.example.minibank.controller.api;
+
+import com.example.minibank.metrics.MetricsRegistry;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/metrics")
+@Tag(name = "Metrics API", description = "Application metrics in the Prometheus text format")
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+
+    @Autowired
+    public MetricsController(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @GetMapping(produces = "text/plain; version=0.0.4")
+    public ResponseEntity<String> scrape() {
+        return new ResponseEntity<>(metricsRegistry.scrape(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.minibank.controller.api;
+
+import com.example.minibank.config.WebConfig;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes objects to a response as newline-delimited JSON, one line per object, as they are produced.
+ */
+class NdjsonWriter {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final ObjectWriter objectWriter;
+    private final OutputStream outputStream;
+
+    private NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.outputStream = outputStream;
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Consumer<NdjsonWriter> producer) {
+        StreamingResponseBody body = outputStream -> producer.accept(new NdjsonWriter(objectMapper, outputStream));
+
+        return ResponseEntity.ok()
+                .contentType(WebConfig.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Writes to the response from the calling thread, for streams that take longer than an async
+     * request is allowed to.
+     */
+    static NdjsonWriter to(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(MEDIA_TYPE);
+
+        return new NdjsonWriter(objectMapper, response.getOutputStream());
+    }
+
+    void write(Object value) {
+        try {
+            objectWriter.writeValue(outputStream, value);
+            outputStream.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Sends what has been written so far to the client.
+     */
+    void flush() {
+        try {
+            outputStream.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -1,16 +1,17 @@
 package com.example.minibank.controller.request;
 
+import com.example.minibank.model.Money;
 import org.springframework.stereotype.Component;
 
 @Component
 public class DepositRequest {
-    private double amount;
+    private Money amount;
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 }
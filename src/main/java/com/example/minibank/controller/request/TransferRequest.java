@@ -1,5 +1,7 @@
 package com.example.minibank.controller.request;
 
+import com.example.minibank.model.Money;
+import com.example.minibank.service.AccountService;
 import org.springframework.stereotype.Component;
 
 import javax.validation.constraints.Size;
@@ -9,9 +11,9 @@ public class TransferRequest {
 
     private String receiverAccountCode;
 
-    private double amount;
+    private Money amount;
 
-    @Size(max = 255)
+    @Size(max = AccountService.MAXIMUM_REMARKS_LENGTH, message = "Remarks cannot be longer than " + AccountService.MAXIMUM_REMARKS_LENGTH + " characters")
     private String remarks;
 
     public String getReceiverAccountCode() {
@@ -22,11 +24,11 @@ public class TransferRequest {
         this.receiverAccountCode = receiverAccountCode;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -0,0 +1,53 @@
+package com.example.minibank.controller.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back to fetch the following page;
+ * it is {@code null} on the last page.
+ */
+public class CursorPage<T> {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAXIMUM_SIZE = 500;
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Clamps a requested page size to {@code [1, MAXIMUM_SIZE]}.
+     */
+    public static int size(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAXIMUM_SIZE));
+    }
+
+    /**
+     * Builds a page from up to {@code size + 1} fetched items, where the extra item only tells that
+     * another page follows.
+     *
+     * @param cursorOf creates the cursor pointing just after the given item
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int size, Function<T, String> cursorOf) {
+        if (fetched.size() <= size) {
+            return new CursorPage<>(fetched, null);
+        }
+
+        List<T> items = fetched.subList(0, size);
+
+        return new CursorPage<>(items, cursorOf.apply(items.get(size - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
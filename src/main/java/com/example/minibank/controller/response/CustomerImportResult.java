@@ -0,0 +1,54 @@
+package com.example.minibank.controller.response;
+
+/**
+ * Outcome of a single record within a customer import.
+ */
+public class CustomerImportResult {
+
+    public enum Status {
+        IMPORTED,
+        FAILED
+    }
+
+    private final int index;
+    private final Status status;
+    private final String customerCode;
+    private final String accountCode;
+    private final String message;
+
+    private CustomerImportResult(int index, Status status, String customerCode, String accountCode, String message) {
+        this.index = index;
+        this.status = status;
+        this.customerCode = customerCode;
+        this.accountCode = accountCode;
+        this.message = message;
+    }
+
+    public static CustomerImportResult imported(int index, String customerCode, String accountCode) {
+        return new CustomerImportResult(index, Status.IMPORTED, customerCode, accountCode, null);
+    }
+
+    public static CustomerImportResult failed(int index, String message) {
+        return new CustomerImportResult(index, Status.FAILED, null, null, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getCustomerCode() {
+        return customerCode;
+    }
+
+    public String getAccountCode() {
+        return accountCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.minibank.controller.response;
+
+/**
+ * Outcome of a single transfer within a batch.
+ */
+public class TransferResult {
+
+    public enum Status {
+        COMPLETED,
+        FAILED,
+        /**
+         * The transfer may or may not have been applied, e.g. the ledger did not answer in time. It
+         * has its code, under which it is found once it was.
+         */
+        UNKNOWN
+    }
+
+    private final int index;
+    private final Status status;
+    private final String transferCode;
+    private final String message;
+
+    private TransferResult(int index, Status status, String transferCode, String message) {
+        this.index = index;
+        this.status = status;
+        this.transferCode = transferCode;
+        this.message = message;
+    }
+
+    public static TransferResult completed(int index, String transferCode) {
+        return new TransferResult(index, Status.COMPLETED, transferCode, null);
+    }
+
+    public static TransferResult failed(int index, String message) {
+        return new TransferResult(index, Status.FAILED, null, message);
+    }
+
+    public static TransferResult unknown(int index, String transferCode, String message) {
+        return new TransferResult(index, Status.UNKNOWN, transferCode, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getTransferCode() {
+        return transferCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
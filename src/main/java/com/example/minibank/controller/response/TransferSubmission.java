@@ -0,0 +1,62 @@
+package com.example.minibank.controller.response;
+
+/**
+ * Where a transfer submitted for background execution is at.
+ */
+public class TransferSubmission {
+
+    /**
+     * Where the submission of a transfer can be looked up, relative to the API root, expanded with
+     * the sender's account code and the transfer code.
+     */
+    public static final String LOCATION = "/accounts/{code}/transfers/{transferCode}/status";
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED,
+        /**
+         * The transfer was executed but whether it was applied is not known yet. It turns into
+         * {@code COMPLETED} once the transfer is found.
+         */
+        UNKNOWN
+    }
+
+    private final String transferCode;
+    private final Status status;
+    private final String message;
+
+    private TransferSubmission(String transferCode, Status status, String message) {
+        this.transferCode = transferCode;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static TransferSubmission pending(String transferCode) {
+        return new TransferSubmission(transferCode, Status.PENDING, null);
+    }
+
+    public static TransferSubmission completed(String transferCode) {
+        return new TransferSubmission(transferCode, Status.COMPLETED, null);
+    }
+
+    public static TransferSubmission failed(String transferCode, String message) {
+        return new TransferSubmission(transferCode, Status.FAILED, message);
+    }
+
+    public static TransferSubmission unknown(String transferCode, String message) {
+        return new TransferSubmission(transferCode, Status.UNKNOWN, message);
+    }
+
+    public String getTransferCode() {
+        return transferCode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
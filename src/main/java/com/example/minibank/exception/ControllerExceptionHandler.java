@@ -1,11 +1,17 @@
 package com.example.minibank.exception;
 
+import com.example.minibank.idempotency.IdempotencyFilter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import java.time.LocalDateTime;
 import java.util.Locale;
@@ -15,6 +21,8 @@ import java.util.Optional;
 @RestControllerAdvice
 public class ControllerExceptionHandler {
 
+    static final String RETRY_AFTER_SECONDS = "1";
+
     @ExceptionHandler(CustomerNotFoundException.class)
     @ResponseStatus(value = HttpStatus.NOT_FOUND)
     public ErrorMessage customerNotFoundException(CustomerNotFoundException ex, WebRequest request) {
@@ -25,6 +33,16 @@ public class ControllerExceptionHandler {
         );
     }
 
+    @ExceptionHandler(TransferNotFoundException.class)
+    @ResponseStatus(value = HttpStatus.NOT_FOUND)
+    public ErrorMessage transferNotFoundException(TransferNotFoundException ex, WebRequest request) {
+        return new ErrorMessage(
+            HttpStatus.NOT_FOUND.value(),
+            LocalDateTime.now(),
+            ex.getMessage()
+        );
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(value = {MethodArgumentNotValidException.class})
     public ErrorMessage handleMethodArgNotValidException(MethodArgumentNotValidException ex, Locale locale) {
@@ -49,6 +67,49 @@ public class ControllerExceptionHandler {
         );
     }
 
+    @ExceptionHandler(value = {TaskRejectedException.class, AsyncRequestTimeoutException.class})
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorMessage serviceUnavailableException(Exception ex, WebRequest request) {
+        // A rejected task never ran; a timed out one may still be running
+        if (ex instanceof TaskRejectedException) {
+            IdempotencyFilter.markNotApplied(request);
+        }
+
+        return new ErrorMessage(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                LocalDateTime.now(),
+                "Too many requests in progress, try again later"
+        );
+    }
+
+    /**
+     * Conflicts still lost after the transaction was retried, a lock wait that timed out included. The
+     * request itself was valid, so it is answered with 503 rather than cached as a client error, and as its
+     * transaction was rolled back, its idempotency key is released for the retry.
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ErrorMessage> concurrencyFailureException(ConcurrencyFailureException ex, WebRequest request) {
+        IdempotencyFilter.markNotApplied(request);
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new ErrorMessage(
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        LocalDateTime.now(),
+                        "The account is busy with other transactions, try again later"
+                ));
+    }
+
+    @ExceptionHandler(LedgerTimeoutException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorMessage ledgerTimeoutException(LedgerTimeoutException ex, WebRequest request) {
+        return new ErrorMessage(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                LocalDateTime.now(),
+                ex.getMessage()
+        );
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     public ErrorMessage globalRuntimeExceptionHandler(Exception ex, WebRequest request) {
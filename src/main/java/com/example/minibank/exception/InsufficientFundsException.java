@@ -0,0 +1,7 @@
+package com.example.minibank.exception;
+
+public class InsufficientFundsException extends AccountTransactionException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.minibank.exception;
+
+public class LedgerTimeoutException extends RuntimeException {
+    public LedgerTimeoutException() {
+        super("The ledger did not complete the operation in time, try again later");
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.minibank.exception;
+
+public class TransferNotFoundException extends RuntimeException {
+    public TransferNotFoundException() {
+        super("Transfer not found");
+    }
+
+    public TransferNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.minibank.idempotency;
+
+import com.example.minibank.exception.ErrorMessage;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Makes transfers and deposits sent with an {@code Idempotency-Key} header safe to retry. The response
+ * to the first request with a key is stored, and a retry with the same key gets it back, marked with
+ * {@code Idempotent-Replayed: true}, without the request being handled again.
+ *
+ * <p>A key sent again with a different method, path or body is answered with 422, and a retry that
+ * arrives while the first request is still being handled with 409, whichever instance it reaches.
+ * Responses with a 5xx status are not stored. The key is released for a retry only when the request
+ * was {@linkplain #markNotApplied marked} as having changed nothing, as when its transaction was rolled
+ * back or it never ran. Any other server error leaves the outcome in doubt, a ledger write that timed
+ * out may still complete, so the key stays claimed, and retries are turned away, until the claim times
+ * out.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String EXCHANGE_ATTRIBUTE = IdempotencyFilter.class.getName() + ".exchange";
+    private static final String NOT_APPLIED_ATTRIBUTE = IdempotencyFilter.class.getName() + ".notApplied";
+    private static final List<Endpoint> ENDPOINTS = List.of(
+            new Endpoint("POST", "/accounts/*/transfers"),
+            new Endpoint("POST", "/accounts/*/transfers:batch"),
+            new Endpoint("POST", "/accounts/*/transfers:submit"),
+            new Endpoint("PUT", "/accounts/*/deposit"));
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final MetricsRegistry metricsRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public IdempotencyFilter(IdempotencyStore idempotencyStore, ObjectMapper objectMapper, MetricsRegistry metricsRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Marks the request as failed without changing anything, so that its key is released and a retry
+     * with it is handled again.
+     */
+    public static void markNotApplied(WebRequest request) {
+        request.setAttribute(NOT_APPLIED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+
+        String path = urlPathHelper.getPathWithinApplication(request);
+
+        return ENDPOINTS.stream().noneMatch(endpoint ->
+                endpoint.method().equals(request.getMethod()) && pathMatcher.match(endpoint.pattern(), path));
+    }
+
+    /**
+     * Requests handled asynchronously are only complete once their async dispatch has finished.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Exchange exchange = (Exchange) request.getAttribute(EXCHANGE_ATTRIBUTE);
+
+        if (exchange == null) {
+            String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+
+            if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+                writeError(response, HttpStatus.BAD_REQUEST,
+                        IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+                return;
+            }
+
+            byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+            String requestHash = requestHash(request, body);
+            Optional<IdempotencyStore.StoredResponse> stored = idempotencyStore.find(key);
+
+            if (stored.isEmpty() && !idempotencyStore.claim(key, requestHash)) {
+                // Either still being handled, or completed since it was looked up
+                stored = idempotencyStore.find(key);
+
+                if (stored.isEmpty()) {
+                    count("in_progress");
+                    writeError(response, HttpStatus.CONFLICT, "A request with this idempotency key is still being processed");
+                    return;
+                }
+            }
+
+            if (stored.isPresent()) {
+                replay(response, stored.get(), requestHash);
+                return;
+            }
+
+            exchange = new Exchange(key, requestHash);
+            request = new BufferedBodyRequest(request, body);
+            response = new ContentCachingResponseWrapper(response);
+            request.setAttribute(EXCHANGE_ATTRIBUTE, exchange);
+        }
+
+        boolean handled = false;
+
+        try {
+            filterChain.doFilter(request, response);
+            handled = true;
+        } finally {
+            if (!isAsyncStarted(request)) {
+                complete(exchange, request, response, handled);
+            }
+        }
+    }
+
+    private void complete(Exchange exchange, HttpServletRequest request, HttpServletResponse response, boolean handled)
+            throws IOException {
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        boolean stored = false;
+
+        try {
+            if (handled && wrapper != null && wrapper.getStatus() < 500) {
+                idempotencyStore.save(exchange.key(), new IdempotencyStore.StoredResponse(exchange.requestHash(),
+                        wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray(), LocalDateTime.now()));
+                stored = true;
+                count("stored");
+            }
+        } catch (RuntimeException ex) {
+            // The request has been handled, so its response is still sent; only a retry would run it again
+            log.error("Failed to store the response for idempotency key {}", exchange.key(), ex);
+        } finally {
+            try {
+                if (!stored && Boolean.TRUE.equals(request.getAttribute(NOT_APPLIED_ATTRIBUTE))) {
+                    idempotencyStore.release(exchange.key());
+                } else if (!stored) {
+                    log.warn("Request with idempotency key {} failed with its outcome in doubt, the key stays claimed " +
+                            "until the claim times out", exchange.key());
+                }
+            } catch (RuntimeException ex) {
+                log.error("Failed to release idempotency key {}, it stays claimed until the claim times out", exchange.key(), ex);
+            } finally {
+                if (wrapper != null) {
+                    wrapper.copyBodyToResponse();
+                }
+            }
+        }
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored, String requestHash)
+            throws IOException {
+        if (!stored.requestHash().equals(requestHash)) {
+            count("mismatch");
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "The idempotency key was already used for a different request");
+            return;
+        }
+
+        count("replayed");
+        response.setStatus(stored.statusCode());
+        response.setHeader(REPLAYED_HEADER, "true");
+
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorMessage(status.value(), LocalDateTime.now(), message));
+    }
+
+    private void count(String result) {
+        metricsRegistry.counter("minibank_idempotent_requests_total", "result", result).increment();
+    }
+
+    private static String requestHash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Endpoint(String method, String pattern) {
+    }
+
+    private record Exchange(String key, String requestHash) {
+    }
+
+    /**
+     * Serves a body that has already been read, so it can be hashed before the request is handled.
+     */
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The whole body is in memory already, so the listener is told it is available at once,
+                 * and that it has all been read once the listener has read it.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    (encoding != null) ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
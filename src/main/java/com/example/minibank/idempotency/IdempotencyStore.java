@@ -0,0 +1,148 @@
+package com.example.minibank.idempotency;
+
+import com.example.minibank.cache.BoundedCache;
+import com.example.minibank.config.IdempotencyProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.IdempotencyRecord;
+import com.example.minibank.repository.IdempotencyRecordRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responses to requests sent with an idempotency key, by key. Recent ones are kept in memory, every
+ * one is also written to the {@code idempotency_keys} table, so retries are still recognised after a
+ * restart or once the response has been evicted from memory.
+ *
+ * <p>A key is claimed for as long as its first request is being handled, so a retry that arrives
+ * before the original has finished is turned away rather than executed alongside it. The claim is the
+ * key's row inserted without a response, so the primary key lets only one request claim a key, on
+ * whichever instance it arrives.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final long PURGE_INTERVAL_NANOS = Duration.ofHours(1).toNanos();
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final BoundedCache<String, StoredResponse> responses;
+    private final Duration timeToLive;
+    private final Duration claimTimeout;
+    private final AtomicLong lastPurgeNanos = new AtomicLong(System.nanoTime());
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            IdempotencyProperties idempotencyProperties, MetricsRegistry metricsRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.timeToLive = idempotencyProperties.getTimeToLive();
+        this.claimTimeout = idempotencyProperties.getClaimTimeout();
+        this.responses = new BoundedCache<>("idempotency", idempotencyProperties.getMaximumSize(), timeToLive,
+                metricsRegistry);
+    }
+
+    /**
+     * Claims the key for a request, unless another request holds it or already has a response stored
+     * for it. An expired response, or a claim older than the claim timeout, is taken over.
+     *
+     * @return {@code false} if the key is claimed by another request or has a response
+     */
+    public boolean claim(String key, String requestHash) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            try {
+                idempotencyRecordRepository.insertPending(key, requestHash, LocalDateTime.now());
+                return true;
+            } catch (DataIntegrityViolationException ex) {
+                // The key has a row already, which may have been left behind
+            }
+
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(key);
+
+            if (existing.isEmpty()) {
+                // Released in the meantime, so another request may be claiming it right now
+                continue;
+            }
+
+            IdempotencyRecord record = existing.get();
+            Duration lifetime = record.isPending() ? claimTimeout : timeToLive;
+
+            if (!record.getCreatedAt().plus(lifetime).isBefore(LocalDateTime.now())) {
+                return false;
+            }
+
+            // Only one of the requests taking it over finds the row as it was read
+            return idempotencyRecordRepository.replaceWithPending(key, record.getCreatedAt(), requestHash, LocalDateTime.now()) == 1;
+        }
+
+        // Claimed and released over and over by other requests, which is as good as claimed
+        return false;
+    }
+
+    /**
+     * Gives up the claim on the key without storing a response, so the request can be sent again. Only
+     * for a request known to have changed nothing, as a retry is handled all over again.
+     */
+    public void release(String key) {
+        idempotencyRecordRepository.deletePending(key);
+    }
+
+    /**
+     * @return the response stored for the key, unless it has expired
+     */
+    public Optional<StoredResponse> find(String key) {
+        Optional<StoredResponse> cached = responses.get(key);
+
+        if (cached.isPresent()) {
+            return cached.filter(response -> !isExpired(response));
+        }
+
+        Optional<StoredResponse> stored = idempotencyRecordRepository.findById(key)
+                .filter(record -> !record.isPending())
+                .map(StoredResponse::of)
+                .filter(response -> !isExpired(response));
+        stored.ifPresent(response -> responses.put(key, response));
+
+        return stored;
+    }
+
+    /**
+     * Stores the response for the key in place of its claim. Should only be called by whoever claimed
+     * the key.
+     */
+    public void save(String key, StoredResponse response) {
+        idempotencyRecordRepository.save(new IdempotencyRecord(key, response.requestHash(), response.statusCode(),
+                response.contentType(), response.body(), response.createdAt()));
+        responses.put(key, response);
+
+        purgeExpired();
+    }
+
+    /**
+     * Expired rows of keys that are never sent again would stay forever, so they are deleted every so
+     * often by whichever request happens to save a response at the time.
+     */
+    private void purgeExpired() {
+        long last = lastPurgeNanos.get();
+        long now = System.nanoTime();
+
+        if (now - last >= PURGE_INTERVAL_NANOS && lastPurgeNanos.compareAndSet(last, now)) {
+            idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(timeToLive));
+        }
+    }
+
+    private boolean isExpired(StoredResponse response) {
+        return response.createdAt().plus(timeToLive).isBefore(LocalDateTime.now());
+    }
+
+    public record StoredResponse(String requestHash, int statusCode, String contentType, byte[] body,
+                                 LocalDateTime createdAt) {
+
+        private static StoredResponse of(IdempotencyRecord record) {
+            return new StoredResponse(record.getRequestHash(), record.getStatusCode(), record.getContentType(),
+                    (record.getResponseBody() != null) ? record.getResponseBody() : new byte[0], record.getCreatedAt());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.minibank.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of ledger events, kept in a directory of memory-mapped segment files. Every
+ * record gets the next sequence number and a checksum, so a record torn by a crash is recognised and
+ * dropped when the journal is recovered.
+ *
+ * <p>Appends are written by a single writer thread with group commit: it takes every append waiting
+ * at the time, writes them one after another and forces them to disk together, then completes them.
+ * Under load many appends share one flush, and the disk only ever sees sequential writes.
+ *
+ * <p>Events are encoded by the thread appending them, so an event that cannot be journaled is rejected
+ * on its own and never reaches the writer thread. A failed write or flush leaves the journal closed for
+ * writing: the records of the batch being written are erased again, as their appends are reported as
+ * failed, the appends waiting at the time and any later ones fail, and the application has to be
+ * restarted to recover from what is on disk.
+ */
+class Journal implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Consumer<Record> onCommit;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Exception failure;
+    private long nextSequence = 1;
+
+    /**
+     * @param onCommit called by the writer thread with every record once it is on disk, in sequence order
+     */
+    Journal(Path directory, int segmentSize, Consumer<Record> onCommit) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.onCommit = onCommit;
+        this.thread = new Thread(this, "ledger-journal");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Opens the segments in the directory, creating it if needed, and hands every intact record with
+     * a sequence above {@code afterSequence} to the consumer. Must be called once, before {@link #start()}.
+     */
+    void recover(long afterSequence, Consumer<Record> consumer) {
+        try {
+            Files.createDirectories(directory);
+
+            for (Path path : segmentFiles()) {
+                JournalSegment segment = JournalSegment.open(path);
+
+                if (segments.isEmpty() && segment.getFirstSequence() > afterSequence + 1) {
+                    throw new IllegalStateException("Journal in " + directory + " starts at sequence " +
+                            segment.getFirstSequence() + ", records from " + (afterSequence + 1) + " are missing");
+                }
+
+                if (!segments.isEmpty() && segment.getFirstSequence() != nextSequence) {
+                    throw new IllegalStateException("Journal segment " + path + " does not follow on from the segment before it, " +
+                            "expected it to start at sequence " + nextSequence);
+                }
+
+                segments.addLast(segment);
+                nextSequence = segment.recover(record -> {
+                    if (record.sequence() > afterSequence) {
+                        consumer.accept(record);
+                    }
+                });
+            }
+
+            if (segments.isEmpty()) {
+                nextSequence = afterSequence + 1;
+                segments.addLast(JournalSegment.create(directory, nextSequence, segmentSize));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, ex);
+        }
+
+        log.info("Journal recovered from {} segments in {}, next sequence {}", segments.size(), directory, nextSequence);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @return completed with the record once it is on disk; failed with an {@link IllegalArgumentException}
+     * if the event cannot be journaled, which leaves the journal open for other appends
+     */
+    CompletableFuture<Record> append(JournalEvent event) {
+        CompletableFuture<Record> written = new CompletableFuture<>();
+        byte[] payload;
+
+        try {
+            payload = encode(event);
+        } catch (IllegalArgumentException ex) {
+            written.completeExceptionally(ex);
+            return written;
+        }
+
+        if (failure != null || !running) {
+            written.completeExceptionally(closedException());
+            return written;
+        }
+
+        queue.add(new PendingAppend(event, payload, written));
+
+        return written;
+    }
+
+    private byte[] encode(JournalEvent event) {
+        byte[] payload = event.encode();
+
+        if (payload.length > JournalSegment.maxPayloadSize(segmentSize)) {
+            throw new IllegalArgumentException("Journal event of " + payload.length + " bytes does not fit into a segment");
+        }
+
+        return payload;
+    }
+
+    /**
+     * Deletes the segments holding only records up to and including the sequence. The segment being
+     * written to is always kept.
+     */
+    void deleteSegmentsUpTo(long sequence) {
+        List<JournalSegment> deletable = new ArrayList<>();
+
+        synchronized (segments) {
+            while (segments.size() > 1) {
+                JournalSegment oldest = segments.pollFirst();
+                JournalSegment next = segments.peekFirst();
+
+                if (next.getFirstSequence() - 1 > sequence) {
+                    segments.addFirst(oldest);
+                    break;
+                }
+
+                deletable.add(oldest);
+            }
+        }
+
+        for (JournalSegment segment : deletable) {
+            try {
+                segment.delete();
+            } catch (IOException ex) {
+                log.warn("Failed to delete journal segment {}", segment.getPath(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        List<PendingAppend> batch = new ArrayList<>();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch);
+                commit(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.error("Journal write failed, no further appends are accepted", ex);
+                failure = ex;
+                batch.forEach(append -> append.written().completeExceptionally(closedException()));
+                queue.forEach(append -> append.written().completeExceptionally(closedException()));
+                queue.clear();
+                return;
+            }
+        }
+    }
+
+    private void commit(List<PendingAppend> batch) throws IOException {
+        List<Record> records = new ArrayList<>(batch.size());
+        JournalSegment firstSegment = currentSegment();
+        int firstPosition = firstSegment.position();
+        List<JournalSegment> created = new ArrayList<>();
+
+        try {
+            for (PendingAppend append : batch) {
+                JournalSegment segment = currentSegment();
+
+                if (!segment.append(nextSequence, append.payload())) {
+                    segment.force();
+                    segment = JournalSegment.create(directory, nextSequence, segmentSize);
+                    created.add(segment);
+
+                    synchronized (segments) {
+                        segments.addLast(segment);
+                    }
+
+                    segment.append(nextSequence, append.payload());
+                }
+
+                records.add(new Record(nextSequence++, append.event()));
+            }
+
+            currentSegment().force();
+        } catch (IOException | RuntimeException ex) {
+            erase(firstSegment, firstPosition, created);
+            throw ex;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            onCommit.accept(records.get(i));
+            batch.get(i).written().complete(records.get(i));
+        }
+    }
+
+    /**
+     * Takes back the records of a batch that failed, so that they are not replayed at the next start.
+     */
+    private void erase(JournalSegment firstSegment, int firstPosition, List<JournalSegment> created) {
+        try {
+            synchronized (segments) {
+                segments.removeAll(created);
+            }
+
+            for (JournalSegment segment : created) {
+                segment.delete();
+            }
+
+            firstSegment.truncate(firstPosition);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to erase the records of a failed journal write, they may be replayed at the next start", ex);
+        }
+    }
+
+    private JournalSegment currentSegment() {
+        synchronized (segments) {
+            return segments.peekLast();
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(JournalSegment.SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private IllegalStateException closedException() {
+        return new IllegalStateException("The journal is not accepting writes", failure);
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+
+        synchronized (segments) {
+            for (JournalSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException ex) {
+                    log.warn("Failed to close journal segment {}", segment.getPath(), ex);
+                }
+            }
+        }
+    }
+
+    record Record(long sequence, JournalEvent event) {
+    }
+
+    private record PendingAppend(JournalEvent event, byte[] payload, CompletableFuture<Record> written) {
+    }
+}
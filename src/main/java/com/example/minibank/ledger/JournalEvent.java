@@ -0,0 +1,80 @@
+package com.example.minibank.ledger;
+
+import java.io.*;
+
+/**
+ * A deposit or transfer as it is written to the journal. Events carry account codes as well as ids,
+ * so that replay can route them to the shard owning each account. Amounts are in minor units.
+ */
+sealed interface JournalEvent {
+
+    byte DEPOSIT = 1;
+    byte TRANSFER = 2;
+
+    record Deposit(Integer accountId, String accountCode, long amount) implements JournalEvent {
+    }
+
+    record Transfer(String code, Integer senderAccountId, String senderAccountCode, Integer receiverAccountId,
+                    String receiverAccountCode, long amount, String remarks) implements JournalEvent {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a code or the remarks are too long to be encoded
+     */
+    default byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (this instanceof Deposit deposit) {
+                out.writeByte(DEPOSIT);
+                out.writeInt(deposit.accountId());
+                out.writeUTF(deposit.accountCode());
+                out.writeLong(deposit.amount());
+            } else if (this instanceof Transfer transfer) {
+                out.writeByte(TRANSFER);
+                out.writeUTF(transfer.code());
+                out.writeInt(transfer.senderAccountId());
+                out.writeUTF(transfer.senderAccountCode());
+                out.writeInt(transfer.receiverAccountId());
+                out.writeUTF(transfer.receiverAccountCode());
+                out.writeLong(transfer.amount());
+                out.writeBoolean(transfer.remarks() != null);
+                out.writeUTF((transfer.remarks() != null) ? transfer.remarks() : "");
+            }
+        } catch (UTFDataFormatException ex) {
+            throw new IllegalArgumentException("Journal event has a field too long to be encoded", ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static JournalEvent decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte type = in.readByte();
+
+            if (type == DEPOSIT) {
+                return new Deposit(in.readInt(), in.readUTF(), in.readLong());
+            }
+
+            if (type == TRANSFER) {
+                String code = in.readUTF();
+                int senderAccountId = in.readInt();
+                String senderAccountCode = in.readUTF();
+                int receiverAccountId = in.readInt();
+                String receiverAccountCode = in.readUTF();
+                long amount = in.readLong();
+                boolean hasRemarks = in.readBoolean();
+                String remarks = in.readUTF();
+
+                return new Transfer(code, senderAccountId, senderAccountCode, receiverAccountId, receiverAccountCode,
+                        amount, hasRemarks ? remarks : null);
+            }
+
+            throw new IllegalStateException("Unknown journal event type " + type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.model.LedgerCheckpoint;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.Transfer;
+import com.example.minibank.repository.AccountRepository;
+import com.example.minibank.repository.LedgerCheckpointRepository;
+import com.example.minibank.repository.TransferRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Makes ledger changes durable by appending them to the {@link Journal}, and keeps the accounts and
+ * transfers tables up to date with the journal in the background. Deposits and completed transfers
+ * become one journal event each; the debit that starts a transfer is only in memory until the
+ * transfer completes, so a transfer interrupted by a crash leaves no trace.
+ *
+ * <p>Journal records are applied to the database in batches, one transaction per batch, as balance
+ * changes summed per account plus the new transfer rows. The transaction also moves the
+ * {@link LedgerCheckpoint} to the last record of the batch, so every record is applied exactly once.
+ * A batch failing for a reason retrying cannot fix, such as a constraint the database enforces, is
+ * applied one record at a time instead; a record the database rejects on its own is appended to the
+ * {@value #DEAD_LETTERS} file in the journal directory and skipped, so that the records after it are
+ * still applied. Its balance changes stay in memory until the next start, when balances are
+ * restored from the database without them, so a dead letter has to be reconciled by hand.
+ *
+ * <p>At startup the records after the checkpoint are replayed onto the balances loaded from the
+ * database, and segments the checkpoint has moved past are deleted as it moves.
+ */
+class JournalProjector implements LedgerWriter, Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalProjector.class);
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5_000;
+    static final String DEAD_LETTERS = "dead-letters.log";
+
+    private final Path directory;
+    private final Journal journal;
+    private final AccountRepository accountRepository;
+    private final TransferRepository transferRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Consumer<String> persisted;
+    private final BlockingQueue<Journal.Record> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> awaitingProjection = new ConcurrentSkipListMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile long projectedSequence;
+
+    JournalProjector(Path directory, int segmentSize, AccountRepository accountRepository,
+                     TransferRepository transferRepository, LedgerCheckpointRepository checkpointRepository,
+                     TransactionTemplate transactionTemplate, int batchSize, Consumer<String> persisted) {
+        this.directory = directory;
+        this.journal = new Journal(directory, segmentSize, queue::add);
+        this.accountRepository = accountRepository;
+        this.transferRepository = transferRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.persisted = persisted;
+        this.thread = new Thread(this, "ledger-projector");
+        this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void recover(Consumer<JournalEvent> replay) {
+        projectedSequence = checkpointRepository.findById(LedgerCheckpoint.JOURNAL)
+                .map(LedgerCheckpoint::getLastSequence)
+                .orElse(0L);
+
+        journal.recover(projectedSequence, record -> {
+            replay.accept(record.event());
+            queue.add(record);
+        });
+
+        log.info("Replaying {} journal records after checkpoint {}", queue.size(), projectedSequence);
+    }
+
+    @Override
+    public void start() {
+        journal.start();
+        thread.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> deposited(LedgerAccount account, long amount) {
+        return journal.append(new JournalEvent.Deposit(account.getId(), account.getCode(), amount))
+                .thenCompose(record -> projected(record.sequence()));
+    }
+
+    @Override
+    public void debited(LedgerAccount sender, long amount) {
+        // Journaled together with the credit once the transfer completes
+    }
+
+    @Override
+    public CompletableFuture<Void> transferred(LedgerAccount sender, LedgerAccount receiver, String code, long amount, String remarks) {
+        JournalEvent.Transfer transfer = new JournalEvent.Transfer(code, sender.getId(), sender.getCode(),
+                receiver.getId(), receiver.getCode(), amount, remarks);
+
+        return journal.append(transfer).thenApply(record -> null);
+    }
+
+    @Override
+    public void reversed(LedgerAccount account, long amount) {
+        // Only changes that were never journaled or never projected are taken back
+    }
+
+    private CompletableFuture<Void> projected(long sequence) {
+        if (sequence <= projectedSequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = awaitingProjection.computeIfAbsent(sequence, key -> new CompletableFuture<>());
+
+        // The projector may have moved past the sequence before the future was registered
+        if (sequence <= projectedSequence) {
+            awaitingProjection.remove(sequence);
+            future.complete(null);
+        }
+
+        return future;
+    }
+
+    @Override
+    public void run() {
+        List<Journal.Record> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Journal.Record first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                projectWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void projectWithRetry(List<Journal.Record> batch) throws InterruptedException {
+        long lastSequence = batch.get(batch.size() - 1).sequence();
+
+        try {
+            projectRetryingTransientFailures(batch);
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                deadLetter(batch.get(0), ex);
+            } else {
+                log.warn("Failed to apply {} journal records, applying them one at a time", batch.size(), ex);
+
+                for (Journal.Record record : batch) {
+                    try {
+                        projectRetryingTransientFailures(List.of(record));
+                    } catch (RuntimeException recordEx) {
+                        deadLetter(record, recordEx);
+                    }
+                }
+            }
+        }
+
+        projectedSequence = lastSequence;
+
+        NavigableMap<Long, CompletableFuture<Void>> projected = awaitingProjection.headMap(lastSequence, true);
+        projected.values().forEach(future -> future.complete(null));
+        projected.clear();
+
+        journal.deleteSegmentsUpTo(lastSequence);
+    }
+
+    /**
+     * The records are already durable in the journal, so a batch is retried until it is applied, unless
+     * it failed in a way that will not change by retrying.
+     *
+     * @throws RuntimeException the failure, if retrying cannot fix it
+     */
+    private void projectRetryingTransientFailures(List<Journal.Record> batch) throws InterruptedException {
+        long backoff = 50;
+        long lastSequence = batch.get(batch.size() - 1).sequence();
+
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> project(batch, lastSequence));
+                batch.forEach(record -> accountCodes(record.event()).forEach(persisted));
+                return;
+            } catch (RuntimeException ex) {
+                if (isDeterministic(ex)) {
+                    throw ex;
+                }
+
+                log.error("Failed to apply {} journal records, retrying in {} ms", batch.size(), backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private static List<String> accountCodes(JournalEvent event) {
+        if (event instanceof JournalEvent.Deposit deposit) {
+            return List.of(deposit.accountCode());
+        }
+
+        JournalEvent.Transfer transfer = (JournalEvent.Transfer) event;
+        return List.of(transfer.senderAccountCode(), transfer.receiverAccountCode());
+    }
+
+    private static boolean isDeterministic(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Records the rejected record in the dead letter file and moves the checkpoint past it. The file is
+     * written first, so a crash in between only leaves the record in it twice.
+     */
+    private void deadLetter(Journal.Record record, RuntimeException failure) throws InterruptedException {
+        log.error("Journal record {} was rejected by the database and is skipped: {}", record.sequence(), record.event(), failure);
+
+        String line = record.sequence() + "\t" + record.event() + "\t" + failure + System.lineSeparator();
+
+        long backoff = 50;
+
+        // Without the dead letter the record must not be skipped, or it would be lost without a trace
+        while (true) {
+            try {
+                Files.writeString(directory.resolve(DEAD_LETTERS), line, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+                break;
+            } catch (IOException ex) {
+                log.error("Failed to write dead letter for journal record {}, retrying in {} ms", record.sequence(), backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        }
+
+        backoff = 50;
+
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        checkpointRepository.save(new LedgerCheckpoint(LedgerCheckpoint.JOURNAL, record.sequence())));
+                break;
+            } catch (RuntimeException ex) {
+                log.error("Failed to move the checkpoint past journal record {}, retrying in {} ms", record.sequence(), backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        }
+
+        CompletableFuture<Void> awaiting = awaitingProjection.remove(record.sequence());
+
+        if (awaiting != null) {
+            awaiting.completeExceptionally(new IllegalStateException("The change was journaled but rejected by the database"));
+        }
+    }
+
+    private void project(List<Journal.Record> batch, long lastSequence) {
+        Map<Integer, Long> balanceChanges = new LinkedHashMap<>();
+        List<Transfer> transfers = new ArrayList<>();
+
+        for (Journal.Record record : batch) {
+            if (record.event() instanceof JournalEvent.Deposit deposit) {
+                balanceChanges.merge(deposit.accountId(), deposit.amount(), Long::sum);
+            } else if (record.event() instanceof JournalEvent.Transfer transfer) {
+                balanceChanges.merge(transfer.senderAccountId(), -transfer.amount(), Long::sum);
+                balanceChanges.merge(transfer.receiverAccountId(), transfer.amount(), Long::sum);
+                transfers.add(toTransfer(transfer));
+            }
+        }
+
+        if (!transfers.isEmpty()) {
+            transferRepository.saveAll(transfers);
+        }
+
+        balanceChanges.forEach((accountId, change) -> {
+            if (change != 0) {
+                accountRepository.adjustBalance(accountId, change);
+            }
+        });
+
+        checkpointRepository.save(new LedgerCheckpoint(LedgerCheckpoint.JOURNAL, lastSequence));
+    }
+
+
+    private Transfer toTransfer(JournalEvent.Transfer event) {
+        Transfer transfer = new Transfer();
+        transfer.setCode(event.code());
+        transfer.setAmount(Money.ofMinorUnits(event.amount()));
+        transfer.setRemarks(event.remarks());
+        transfer.setSenderAccount(accountRepository.getReferenceById(event.senderAccountId()));
+        transfer.setReceiverAccount(accountRepository.getReferenceById(event.receiverAccountId()));
+
+        return transfer;
+    }
+
+    /**
+     * Stops taking new appends, then waits until everything journaled has been applied to the database.
+     */
+    @Override
+    public void shutdown() throws InterruptedException {
+        journal.shutdown();
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+}
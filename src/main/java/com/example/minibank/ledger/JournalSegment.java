@@ -0,0 +1,186 @@
+package com.example.minibank.ledger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One fixed-size, memory-mapped journal file. Records are appended back to back, each laid out as
+ * <pre>
+ * int  payload length
+ * int  CRC32C of sequence and payload
+ * long sequence
+ * byte[] payload
+ * </pre>
+ * The file is zero-filled when created, so a zero length marks the end of the written records.
+ * Only ever written by the journal's writer thread.
+ */
+class JournalSegment {
+
+    static final String SUFFIX = ".journal";
+    static final int HEADER_SIZE = 16;
+
+    private final Path path;
+    private final long firstSequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int forcedPosition;
+
+    private JournalSegment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment create(Path directory, long firstSequence, int size) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        return new JournalSegment(path, firstSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    static JournalSegment open(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        long firstSequence = Long.parseLong(fileName.substring(0, fileName.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        return new JournalSegment(path, firstSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * Reads the records from the start of the segment and leaves it positioned after the last valid
+     * one. Everything after it, such as a record torn by a crash, is zeroed, so that records appended
+     * from there cannot be followed by stale bytes that look valid.
+     *
+     * @return the sequence the next record appended to this segment gets
+     */
+    long recover(Consumer<Journal.Record> consumer) {
+        long sequence = firstSequence;
+        buffer.position(0);
+
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            long recordSequence = buffer.getLong();
+
+            if (length <= 0 || length > buffer.remaining() || recordSequence != sequence) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            if (checksum(recordSequence, payload) != checksum) {
+                buffer.position(start);
+                break;
+            }
+
+            consumer.accept(new Journal.Record(recordSequence, JournalEvent.decode(payload)));
+            sequence++;
+        }
+
+        // Only written where not already zero, so the unused rest of the file stays sparse
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        forcedPosition = buffer.position();
+
+        return sequence;
+    }
+
+    /**
+     * @return {@code false} if the record does not fit into what is left of the segment
+     */
+    boolean append(long sequence, byte[] payload) {
+        if (buffer.remaining() < HEADER_SIZE + payload.length) {
+            return false;
+        }
+
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(sequence, payload));
+        buffer.putLong(sequence);
+        buffer.put(payload);
+
+        return true;
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Zeroes the records appended from the position on, and writes that through to the storage device.
+     * The next record is appended at the position.
+     */
+    void truncate(int position) {
+        int end = buffer.position();
+
+        for (int i = position; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+
+        buffer.position(position);
+
+        if (end > position) {
+            buffer.force(position, end - position);
+        }
+
+        forcedPosition = Math.min(forcedPosition, position);
+    }
+
+    /**
+     * Writes the records appended since the last call through to the storage device.
+     */
+    void force() {
+        int position = buffer.position();
+
+        if (position > forcedPosition) {
+            buffer.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    static int maxPayloadSize(int segmentSize) {
+        return segmentSize - HEADER_SIZE;
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+
+        crc.update(payload);
+
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.minibank.ledger;
+
+/**
+ * In-memory balance of a single account, in minor units. Only ever touched by the thread of the
+ * shard that owns it.
+ */
+class LedgerAccount {
+
+    private final Integer id;
+    private final String code;
+    private long balance;
+
+    LedgerAccount(Integer id, String code, long balance) {
+        this.id = id;
+        this.code = code;
+        this.balance = balance;
+    }
+
+    Integer getId() {
+        return id;
+    }
+
+    String getCode() {
+        return code;
+    }
+
+    long getBalance() {
+        return balance;
+    }
+
+    void credit(long amount) {
+        balance += amount;
+    }
+
+    void debit(long amount) {
+        balance -= amount;
+    }
+}
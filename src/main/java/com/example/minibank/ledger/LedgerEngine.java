@@ -0,0 +1,356 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.config.LedgerProperties;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.exception.LedgerTimeoutException;
+import com.example.minibank.model.Money;
+import com.example.minibank.repository.AccountRepository;
+import com.example.minibank.repository.LedgerCheckpointRepository;
+import com.example.minibank.repository.TransferRepository;
+import com.example.minibank.validator.AccountTransactionValidator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Applies deposits and transfers to in-memory balances split into shards by account code. Every shard
+ * is owned by a single writer thread which applies its operations in order, and the resulting balance
+ * changes are written to the database asynchronously.
+ *
+ * <p>A transfer between accounts on different shards is handed off in two phases: the sender's shard
+ * validates and debits first, then the receiver's shard credits. If the credit fails, or the writer
+ * fails to make the transfer durable, the balances it changed are taken back on their shards before the
+ * failure is rethrown. Since every phase runs on exactly one shard, no locks are
+ * held across shards and the order of phases is the same for every transfer.
+ *
+ * <p>With {@code minibank.ledger.journal.enabled=true} deposits and transfers are appended to a journal on
+ * disk before they are acknowledged, and the database is brought up to date from the journal. At
+ * startup the journal records the database has not caught up with yet are replayed into the shards.
+ *
+ * <p>Only enabled with {@code minibank.transfer.mode=ledger}. While enabled the engine must be the only
+ * writer of account balances. Cached summaries of the accounts it changes are invalidated once their
+ * new balances are committed to the database, as reads are served from there.
+ */
+@Component
+@ConditionalOnProperty(prefix = "minibank.transfer", name = "mode", havingValue = "ledger")
+public class LedgerEngine {
+
+    private final LedgerShard[] shards;
+    private final LedgerWriter writer;
+    private final CodeGenerator codeGenerator;
+    private final Duration writeTimeout;
+
+    public LedgerEngine(AccountRepository accountRepository, TransferRepository transferRepository,
+                        LedgerCheckpointRepository checkpointRepository, TransactionTemplate transactionTemplate,
+                        LedgerProperties ledgerProperties, AccountCache accountCache, CodeGenerator codeGenerator) {
+        this.shards = new LedgerShard[ledgerProperties.getShards()];
+        this.codeGenerator = codeGenerator;
+        this.writeTimeout = ledgerProperties.getWriteTimeout();
+
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new LedgerShard(i, accountRepository);
+        }
+
+        LedgerProperties.Journal journal = ledgerProperties.getJournal();
+
+        this.writer = journal.isEnabled()
+                ? new JournalProjector(Path.of(journal.getDirectory()), (int) journal.getSegmentSize().toBytes(),
+                        accountRepository, transferRepository, checkpointRepository, transactionTemplate,
+                        ledgerProperties.getPersistBatchSize(), accountCache::invalidate)
+                : new LedgerPersister(accountRepository, transferRepository, transactionTemplate,
+                        ledgerProperties.getPersistBatchSize(), accountCache::invalidate);
+    }
+
+    @PostConstruct
+    void start() {
+        replay();
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (LedgerShard shard : shards) {
+            shard.shutdown();
+        }
+
+        writer.shutdown();
+    }
+
+    /**
+     * Applies the changes recovered by the writer to the in-memory balances, and waits until every
+     * shard has applied them before anything else can reach the database.
+     */
+    private void replay() {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        writer.recover(event -> {
+            if (event instanceof JournalEvent.Deposit deposit) {
+                replayOnShard(deposit.accountCode(), account -> account.credit(deposit.amount()), failure);
+            } else if (event instanceof JournalEvent.Transfer transfer) {
+                replayOnShard(transfer.senderAccountCode(), account -> account.debit(transfer.amount()), failure);
+                replayOnShard(transfer.receiverAccountCode(), account -> account.credit(transfer.amount()), failure);
+            }
+        });
+
+        // Shards run their tasks in order, so these complete only after every replayed change
+        for (LedgerShard shard : shards) {
+            join(shard.submit(() -> null));
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Failed to replay the ledger journal", failure.get());
+        }
+    }
+
+    private void replayOnShard(String code, Consumer<LedgerAccount> change, AtomicReference<Throwable> failure) {
+        LedgerShard shard = shardFor(code);
+
+        shard.submit(() -> {
+            change.accept(shard.account(code, "Journaled account " + code + " not found"));
+            return null;
+        }).whenComplete((result, ex) -> {
+            if (ex != null) {
+                failure.compareAndSet(null, ex);
+            }
+        });
+    }
+
+    /**
+     * Deposits into the account and waits until the new balance has been written to the database.
+     */
+    public void deposit(String code, Money deposit) {
+        LedgerShard shard = shardFor(code);
+        long amount = deposit.minorUnits();
+
+        AtomicReference<LedgerAccount> credited = new AtomicReference<>();
+        CompletableFuture<Void> written = apply(shard, () -> {
+            LedgerAccount account = shard.account(code, "Account not found");
+            account.credit(amount);
+
+            try {
+                CompletableFuture<Void> deposited = writer.deposited(account, amount);
+                credited.set(account);
+                return deposited;
+            } catch (RuntimeException ex) {
+                account.debit(amount);
+                throw ex;
+            }
+        });
+
+        try {
+            await(written);
+        } catch (LedgerTimeoutException ex) {
+            // Still in progress, so it may yet be written, and is taken back if it fails after all
+            written.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    shard.submit(() -> reverse(credited.get(), -amount));
+                }
+            });
+            throw ex;
+        } catch (RuntimeException ex) {
+            await(shard.submit(() -> reverse(credited.get(), -amount)));
+            throw ex;
+        }
+    }
+
+    /**
+     * Applies the transfer in memory and returns once it is durable: with the journal enabled once it
+     * is in the journal, from which it is written to the database asynchronously, otherwise once it is
+     * committed to the database.
+     *
+     * @return the code of the new transfer
+     */
+    public String transfer(String senderCode, TransferRequest transferRequest) {
+        return transfer(senderCode, transferRequest, codeGenerator.nextCode());
+    }
+
+    /**
+     * Same as {@link #transfer(String, TransferRequest)}, with the code the new transfer gets.
+     */
+    public String transfer(String senderCode, TransferRequest transferRequest, String transferCode) {
+        // Checked before any balance changes, as remarks that cannot be stored would fail the transfer after the fact
+        AccountTransactionValidator.validateRemarks(transferRequest.getRemarks());
+
+        String receiverCode = transferRequest.getReceiverAccountCode();
+        long amount = (transferRequest.getAmount() != null) ? transferRequest.getAmount().minorUnits() : 0;
+
+        LedgerShard senderShard = shardFor(senderCode);
+        LedgerShard receiverShard = shardFor(receiverCode);
+
+        if (senderShard == receiverShard) {
+            Credit credit = apply(senderShard, () -> {
+                LedgerAccount sender = senderShard.account(senderCode, "Sender account not found");
+                LedgerAccount receiver = senderShard.account(receiverCode, "Receiver account not found");
+
+                debit(sender, amount);
+
+                try {
+                    return credit(receiver, sender, transferCode, amount, transferRequest.getRemarks());
+                } catch (RuntimeException ex) {
+                    reverse(sender, amount);
+                    throw ex;
+                }
+            });
+
+            awaitWritten(credit, senderShard, receiverShard, amount);
+
+            return transferCode;
+        }
+
+        LedgerAccount sender = apply(senderShard, () -> {
+            LedgerAccount account = senderShard.account(senderCode, "Sender account not found");
+
+            debit(account, amount);
+            return account;
+        });
+
+        Credit credit;
+
+        try {
+            credit = apply(receiverShard, () -> {
+                LedgerAccount receiver = receiverShard.account(receiverCode, "Receiver account not found");
+
+                return credit(receiver, sender, transferCode, amount, transferRequest.getRemarks());
+            });
+        } catch (RuntimeException ex) {
+            // The credit was either not applied or already taken back, a timeout included as it skips the credit
+            await(senderShard.submit(() -> reverse(sender, amount)));
+            throw ex;
+        }
+
+        awaitWritten(credit, senderShard, receiverShard, amount);
+
+        return transferCode;
+    }
+
+    /**
+     * Waits until the transfer may be acknowledged. If the writer failed to make it durable, both
+     * balances are taken back on their shards before the failure is rethrown. If the wait runs out
+     * first they are taken back once the writer fails, if it does.
+     */
+    private void awaitWritten(Credit credit, LedgerShard senderShard, LedgerShard receiverShard, long amount) {
+        try {
+            await(credit.written());
+        } catch (LedgerTimeoutException ex) {
+            // Still in progress, so it may yet be written
+            credit.written().whenComplete((result, failure) -> {
+                if (failure != null) {
+                    takeBack(credit, senderShard, receiverShard, amount);
+                }
+            });
+            throw ex;
+        } catch (RuntimeException ex) {
+            await(takeBack(credit, senderShard, receiverShard, amount));
+            throw ex;
+        }
+    }
+
+    private CompletableFuture<Void> takeBack(Credit credit, LedgerShard senderShard, LedgerShard receiverShard, long amount) {
+        return CompletableFuture.allOf(receiverShard.submit(() -> reverse(credit.receiver(), -amount)),
+                senderShard.submit(() -> reverse(credit.sender(), amount)));
+    }
+
+    private void debit(LedgerAccount account, long amount) {
+        AccountTransactionValidator.validateTransferAmount(account.getBalance(), amount);
+
+        account.debit(amount);
+        writer.debited(account, amount);
+    }
+
+    /**
+     * Credits the receiver and hands the transfer to the writer, taking the credit back if the writer
+     * throws.
+     */
+    private Credit credit(LedgerAccount receiver, LedgerAccount sender, String transferCode, long amount, String remarks) {
+        receiver.credit(amount);
+
+        try {
+            return new Credit(sender, receiver, writer.transferred(sender, receiver, transferCode, amount, remarks));
+        } catch (RuntimeException ex) {
+            receiver.debit(amount);
+            throw ex;
+        }
+    }
+
+    /**
+     * Takes back a change applied to the account, a credit when {@code amount} is negative. Must run on the
+     * account's shard.
+     */
+    private Void reverse(LedgerAccount account, long amount) {
+        account.credit(amount);
+        writer.reversed(account, amount);
+
+        return null;
+    }
+
+    private LedgerShard shardFor(String code) {
+        return shards[Math.floorMod(Objects.hashCode(code), shards.length)];
+    }
+
+    /**
+     * Runs the task on the shard and waits for it. A task that has not started by the time the wait
+     * runs out is skipped, so a caller that gave up never has its change applied behind its back. One
+     * that has started is waited for, as it only touches memory once its accounts are loaded.
+     */
+    private <T> T apply(LedgerShard shard, Callable<T> task) {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<T> future = shard.submit(() -> started.compareAndSet(false, true) ? task.call() : null);
+
+        try {
+            return await(future);
+        } catch (LedgerTimeoutException ex) {
+            if (started.compareAndSet(false, true)) {
+                throw ex;
+            }
+
+            return join(future);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(writeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new LedgerTimeoutException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * A credited transfer, with the future completed once the writer has made it durable.
+     */
+    private record Credit(LedgerAccount sender, LedgerAccount receiver, CompletableFuture<Void> written) {
+    }
+}
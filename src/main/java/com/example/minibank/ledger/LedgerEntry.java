@@ -0,0 +1,26 @@
+package com.example.minibank.ledger;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A balance change applied by a shard that still has to be written to the database.
+ * Entries for the same account are always produced by the same shard, so they reach the
+ * persister in the order they were applied and the balance can be written as an absolute value.
+ * Balances and amounts are in minor units.
+ *
+ * @param transfer set on the entry that completes a transfer, {@code null} otherwise
+ * @param persisted completed once the entry has been committed to the database
+ */
+record LedgerEntry(Integer accountId, String accountCode, long balance, TransferRecord transfer, CompletableFuture<Void> persisted) {
+
+    LedgerEntry(LedgerAccount account) {
+        this(account.getId(), account.getCode(), account.getBalance(), null, new CompletableFuture<>());
+    }
+
+    LedgerEntry(LedgerAccount account, TransferRecord transfer) {
+        this(account.getId(), account.getCode(), account.getBalance(), transfer, new CompletableFuture<>());
+    }
+
+    record TransferRecord(String code, Integer senderAccountId, Integer receiverAccountId, long amount, String remarks) {
+    }
+}
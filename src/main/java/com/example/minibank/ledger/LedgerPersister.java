@@ -0,0 +1,190 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.model.Money;
+import com.example.minibank.model.Transfer;
+import com.example.minibank.repository.AccountRepository;
+import com.example.minibank.repository.TransferRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes ledger entries to the database in the background. Entries are drained in batches and each
+ * batch is committed in a single transaction, with only the latest balance of every account written.
+ * Deposits and transfers are only acknowledged once they are committed, so nothing acknowledged is
+ * lost if the application stops unexpectedly.
+ *
+ * <p>A failed batch is retried a few times, then written entry by entry so that one entry the database
+ * rejects does not hold back the rest. Entries that still fail are logged and dropped, and the deposit
+ * or transfer waiting for one fails. The engine then takes back the balances it changed, so the
+ * reversing entries that follow write balances that no longer count it, as balances are written as
+ * absolute values.
+ */
+class LedgerPersister implements LedgerWriter, Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerPersister.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5_000;
+
+    private final AccountRepository accountRepository;
+    private final TransferRepository transferRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Consumer<String> persisted;
+    private final BlockingQueue<LedgerEntry> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LedgerPersister(AccountRepository accountRepository, TransferRepository transferRepository,
+                    TransactionTemplate transactionTemplate, int batchSize, Consumer<String> persisted) {
+        this.accountRepository = accountRepository;
+        this.transferRepository = transferRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.persisted = persisted;
+        this.thread = new Thread(this, "ledger-persister");
+        this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void recover(Consumer<JournalEvent> replay) {
+        // Nothing is durable before it is in the database
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> deposited(LedgerAccount account, long amount) {
+        LedgerEntry entry = new LedgerEntry(account);
+        queue.add(entry);
+
+        return entry.persisted();
+    }
+
+    @Override
+    public void debited(LedgerAccount sender, long amount) {
+        queue.add(new LedgerEntry(sender));
+    }
+
+    @Override
+    public CompletableFuture<Void> transferred(LedgerAccount sender, LedgerAccount receiver, String code, long amount, String remarks) {
+        LedgerEntry.TransferRecord transfer = new LedgerEntry.TransferRecord(code, sender.getId(), receiver.getId(), amount, remarks);
+        LedgerEntry entry = new LedgerEntry(receiver, transfer);
+        queue.add(entry);
+
+        return entry.persisted();
+    }
+
+    @Override
+    public void reversed(LedgerAccount account, long amount) {
+        queue.add(new LedgerEntry(account));
+    }
+
+    @Override
+    public void run() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                LedgerEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persistWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void persistWithRetry(List<LedgerEntry> batch) throws InterruptedException {
+        if (persistWithRetry(batch, MAX_ATTEMPTS)) {
+            batch.forEach(entry -> entry.persisted().complete(null));
+            return;
+        }
+
+        // The batch may hold an entry the database will never accept, so the entries are written one by one
+        // and only the ones still failing are dropped
+        for (LedgerEntry entry : batch) {
+            if (persistWithRetry(List.of(entry), 1)) {
+                entry.persisted().complete(null);
+            } else {
+                log.error("Dropping ledger entry {} that could not be persisted", entry);
+                entry.persisted().completeExceptionally(new IllegalStateException("The change could not be written to the database"));
+            }
+        }
+    }
+
+    private boolean persistWithRetry(List<LedgerEntry> entries, int maxAttempts) throws InterruptedException {
+        long backoff = 50;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(entries));
+                entries.forEach(entry -> persisted.accept(entry.accountCode()));
+                return true;
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts) {
+                    log.error("Failed to persist {} ledger entries after {} attempts", entries.size(), attempt, ex);
+                    return false;
+                }
+
+                log.warn("Failed to persist {} ledger entries, retrying in {} ms", entries.size(), backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void persist(List<LedgerEntry> batch) {
+        Map<Integer, Long> balances = new LinkedHashMap<>();
+        List<Transfer> transfers = new ArrayList<>();
+
+        for (LedgerEntry entry : batch) {
+            balances.put(entry.accountId(), entry.balance());
+
+            if (entry.transfer() != null) {
+                transfers.add(toTransfer(entry.transfer()));
+            }
+        }
+
+        if (!transfers.isEmpty()) {
+            transferRepository.saveAll(transfers);
+        }
+
+        balances.forEach((accountId, balance) -> accountRepository.updateBalance(accountId, Money.ofMinorUnits(balance)));
+    }
+
+    private Transfer toTransfer(LedgerEntry.TransferRecord record) {
+        Transfer transfer = new Transfer();
+        transfer.setCode(record.code());
+        transfer.setAmount(Money.ofMinorUnits(record.amount()));
+        transfer.setRemarks(record.remarks());
+        transfer.setSenderAccount(accountRepository.getReferenceById(record.senderAccountId()));
+        transfer.setReceiverAccount(accountRepository.getReferenceById(record.receiverAccountId()));
+
+        return transfer;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+}
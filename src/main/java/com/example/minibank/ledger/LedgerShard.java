@@ -0,0 +1,65 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.repository.AccountRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Owns the balances of a subset of accounts. All reads and writes of those balances run on the
+ * shard's single writer thread, so no further locking is needed.
+ */
+class LedgerShard {
+
+    private final AccountRepository accountRepository;
+    private final ExecutorService writer;
+    private final Map<String, LedgerAccount> accounts = new HashMap<>();
+
+    LedgerShard(int index, AccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        writer.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Returns the in-memory account, loading its balance from the database the first time it is touched.
+     * Must only be called from within a task submitted to this shard.
+     */
+    LedgerAccount account(String code, String notFoundMessage) {
+        LedgerAccount account = accounts.get(code);
+
+        if (account == null) {
+            account = accountRepository.findAccountByCode(code)
+                    .map(entity -> new LedgerAccount(entity.getId(), entity.getCode(), entity.getBalance().minorUnits()))
+                    .orElseThrow(() -> new AccountNotFoundException(notFoundMessage));
+
+            accounts.put(code, account);
+        }
+
+        return account;
+    }
+
+    void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
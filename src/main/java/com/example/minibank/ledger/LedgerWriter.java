@@ -0,0 +1,44 @@
+package com.example.minibank.ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Makes the balance changes applied by the shards durable. Called from the thread of the shard that
+ * owns the account, so changes to the same account arrive in the order they were applied. Amounts are
+ * in minor units.
+ */
+interface LedgerWriter {
+
+    /**
+     * Hands the changes that were made durable before a restart, but are not yet reflected in the
+     * database, to {@code replay}, so they can be applied to the balances loaded from the database.
+     * Called once, before {@link #start()}.
+     */
+    void recover(Consumer<JournalEvent> replay);
+
+    void start();
+
+    /**
+     * @return completed once the deposit may be acknowledged and the new balance read from the database
+     */
+    CompletableFuture<Void> deposited(LedgerAccount account, long amount);
+
+    /**
+     * The first half of a transfer, followed by either {@link #transferred} or {@link #reversed}.
+     */
+    void debited(LedgerAccount sender, long amount);
+
+    /**
+     * @return completed once the transfer may be acknowledged
+     */
+    CompletableFuture<Void> transferred(LedgerAccount sender, LedgerAccount receiver, String code, long amount, String remarks);
+
+    /**
+     * A change taken back because the deposit or transfer could not be completed, with the account's
+     * balance already restored. {@code amount} is what was credited back, negative for a credit taken back.
+     */
+    void reversed(LedgerAccount account, long amount);
+
+    void shutdown() throws InterruptedException;
+}
@@ -0,0 +1,50 @@
+package com.example.minibank.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the state of Hikari connection pools: connections by state and threads waiting for one as
+ * gauges, how long getting a connection and holding it took as timers, and connection timeouts as a
+ * counter. Every metric is tagged with the pool name.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final MetricsRegistry metricsRegistry;
+
+    public ConnectionPoolMetrics(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        metricsRegistry.gauge("minibank_db_pool_connections", poolStats::getActiveConnections, "pool", poolName, "state", "active");
+        metricsRegistry.gauge("minibank_db_pool_connections", poolStats::getIdleConnections, "pool", poolName, "state", "idle");
+        metricsRegistry.gauge("minibank_db_pool_connections_max", poolStats::getMaxConnections, "pool", poolName);
+        metricsRegistry.gauge("minibank_db_pool_pending_threads", poolStats::getPendingThreads, "pool", poolName);
+
+        Timer acquire = metricsRegistry.timer("minibank_db_pool_acquire_seconds", "pool", poolName);
+        Timer usage = metricsRegistry.timer("minibank_db_pool_usage_seconds", "pool", poolName);
+        Counter timeouts = metricsRegistry.counter("minibank_db_pool_timeouts_total", "pool", poolName);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
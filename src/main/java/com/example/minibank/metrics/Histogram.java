@@ -0,0 +1,68 @@
+package com.example.minibank.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of observed values over fixed bucket upper bounds, plus their count and sum, cheap to
+ * update from many threads at once.
+ */
+public class Histogram {
+
+    private final double[] upperBounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param upperBounds inclusive bucket upper bounds in ascending order, without {@code +Inf}
+     */
+    public Histogram(double... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        this.buckets = new LongAdder[upperBounds.length];
+        Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    public void observe(double value) {
+        int bucket = Arrays.binarySearch(upperBounds, value);
+
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+
+        if (bucket < buckets.length) {
+            buckets[bucket].increment();
+        }
+
+        count.increment();
+        sum.add(value);
+    }
+
+    double[] upperBounds() {
+        return upperBounds;
+    }
+
+    /**
+     * @return the number of observations at or below each upper bound
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+
+        return counts;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sum() {
+        return sum.sum();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.minibank.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds the application's metrics and renders them in the Prometheus text exposition format.
+ * Metrics are identified by a name plus tag key/value pairs, and are created on first use.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final ConcurrentMap<MetricId, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricId, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricId, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @param tags alternating tag keys and values
+     */
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(MetricId.of(name, tags), id -> new Counter());
+    }
+
+    /**
+     * @param upperBounds bucket upper bounds in ascending order, used when the histogram is created
+     * @param tags alternating tag keys and values
+     */
+    public Histogram histogram(String name, double[] upperBounds, String... tags) {
+        return histograms.computeIfAbsent(MetricId.of(name, tags), id -> new Histogram(upperBounds));
+    }
+
+    /**
+     * @param name name of the metric, ending in {@code _seconds}
+     * @param tags alternating tag keys and values
+     */
+    public Timer timer(String name, String... tags) {
+        Histogram histogram = histograms.computeIfAbsent(MetricId.of(name, tags), id -> new Timer());
+
+        if (!(histogram instanceof Timer timer)) {
+            throw new IllegalArgumentException(name + " is already registered as a histogram");
+        }
+
+        return timer;
+    }
+
+    /**
+     * Registers a value that is read every time metrics are scraped, replacing any gauge registered
+     * before with the same name and tags.
+     *
+     * @param tags alternating tag keys and values
+     */
+    public void gauge(String name, DoubleSupplier value, String... tags) {
+        gauges.put(MetricId.of(name, tags), value);
+    }
+
+    public String scrape() {
+        StringBuilder output = new StringBuilder();
+
+        render(output, counters, "counter", (id, counter) ->
+                output.append(id.name()).append(id.labels()).append(' ').append(counter.count()).append('\n'));
+        render(output, gauges, "gauge", (id, gauge) ->
+                output.append(id.name()).append(id.labels()).append(' ').append(gauge.getAsDouble()).append('\n'));
+        render(output, histograms, "histogram", (id, histogram) -> renderHistogram(output, id, histogram));
+
+        return output.toString();
+    }
+
+    private static <T> void render(StringBuilder output, Map<MetricId, T> metrics, String type,
+                                   BiConsumer<MetricId, T> renderer) {
+        String family = null;
+
+        for (Map.Entry<MetricId, T> metric : new TreeMap<>(metrics).entrySet()) {
+            if (!metric.getKey().name().equals(family)) {
+                family = metric.getKey().name();
+                output.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+            }
+
+            renderer.accept(metric.getKey(), metric.getValue());
+        }
+    }
+
+    private static void renderHistogram(StringBuilder output, MetricId id, Histogram histogram) {
+        double[] upperBounds = histogram.upperBounds();
+        long[] counts = histogram.cumulativeCounts();
+        long count = histogram.count();
+
+        for (int i = 0; i < upperBounds.length; i++) {
+            output.append(id.name()).append("_bucket").append(id.labelsWith("le", Double.toString(upperBounds[i])))
+                    .append(' ').append(counts[i]).append('\n');
+        }
+
+        output.append(id.name()).append("_bucket").append(id.labelsWith("le", "+Inf")).append(' ').append(count).append('\n');
+        output.append(id.name()).append("_sum").append(id.labels()).append(' ').append(histogram.sum()).append('\n');
+        output.append(id.name()).append("_count").append(id.labels()).append(' ').append(count).append('\n');
+    }
+
+    /**
+     * @param tags rendered label pairs without braces, sorted by key, e.g. {@code a="1",b="2"}
+     */
+    private record MetricId(String name, String tags) implements Comparable<MetricId> {
+
+        static MetricId of(String name, String... tags) {
+            if (tags.length % 2 != 0) {
+                throw new IllegalArgumentException("Tags must be given as key/value pairs");
+            }
+
+            Map<String, String> sortedTags = new TreeMap<>();
+
+            for (int i = 0; i < tags.length; i += 2) {
+                sortedTags.put(tags[i], tags[i + 1]);
+            }
+
+            StringBuilder rendered = new StringBuilder();
+            sortedTags.forEach((key, value) -> rendered.append(',').append(key).append("=\"").append(value).append('"'));
+
+            return new MetricId(name, rendered.isEmpty() ? "" : rendered.substring(1));
+        }
+
+        String labels() {
+            return tags.isEmpty() ? "" : "{" + tags + "}";
+        }
+
+        String labelsWith(String key, String value) {
+            return "{" + (tags.isEmpty() ? "" : tags + ",") + key + "=\"" + value + "\"}";
+        }
+
+        @Override
+        public int compareTo(MetricId other) {
+            int byName = name.compareTo(other.name);
+
+            return (byName != 0) ? byName : tags.compareTo(other.tags);
+        }
+    }
+}
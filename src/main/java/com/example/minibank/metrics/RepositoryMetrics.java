@@ -0,0 +1,27 @@
+package com.example.minibank.metrics;
+
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every repository method call in {@code minibank_repository_call_duration_seconds}, tagged
+ * with the repository, the method and whether the call succeeded.
+ */
+public class RepositoryMetrics implements RepositoryMethodInvocationListener {
+
+    private final MetricsRegistry metricsRegistry;
+
+    public RepositoryMetrics(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        metricsRegistry.timer("minibank_repository_call_duration_seconds",
+                "repository", invocation.getRepositoryInterface().getSimpleName(),
+                "method", invocation.getMethod().getName(),
+                "state", invocation.getResult().getState().name().toLowerCase())
+                .record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.minibank.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times every HTTP request in {@code minibank_http_request_duration_seconds} and records how many
+ * SQL statements it ran in {@code minibank_http_request_db_statements}. Requests are tagged with the
+ * method and the matched path pattern, not the actual path, so account codes do not become tags.
+ *
+ * <p>A request handled asynchronously is recorded once it completes, with the statements run on the
+ * thread that handled it, see {@link StatementCountingInterceptor}. Work a streamed response does
+ * after the handler returns is not included.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    static final String STATEMENTS_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".statements";
+
+    private static final double[] STATEMENT_BUCKETS = {0, 1, 2, 3, 5, 10, 20, 50, 100};
+
+    private final MetricsRegistry metricsRegistry;
+    private final StatementCounter statementCounter;
+
+    public RequestMetricsFilter(MetricsRegistry metricsRegistry, StatementCounter statementCounter) {
+        this.metricsRegistry = metricsRegistry;
+        this.statementCounter = statementCounter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        AtomicInteger statements = statementCounter.start();
+        request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statementCounter.stop();
+
+            if (isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, start, statements.get());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, start, statements.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start, int statements) {
+        String uri = uri(request);
+
+        metricsRegistry.timer("minibank_http_request_duration_seconds", "method", request.getMethod(), "uri", uri,
+                "status", Integer.toString(response.getStatus())).recordSince(start);
+        metricsRegistry.histogram("minibank_http_request_db_statements", STATEMENT_BUCKETS,
+                "method", request.getMethod(), "uri", uri).observe(statements);
+    }
+
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        return (pattern != null) ? pattern.toString() : "unmatched";
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.minibank.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and
+ * {@link #stop()}. Statements on threads that did not call {@link #start()} are not counted, unless
+ * the count was handed to them with {@link #resume(AtomicInteger)}.
+ */
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private final ThreadLocal<AtomicInteger> statements = new ThreadLocal<>();
+
+    /**
+     * @return the count, to be handed to another thread that continues the same work
+     */
+    public AtomicInteger start() {
+        AtomicInteger count = new AtomicInteger();
+        statements.set(count);
+
+        return count;
+    }
+
+    /**
+     * Counts the statements on the current thread into a count started on another one, until
+     * {@link #stop()}.
+     */
+    public void resume(AtomicInteger count) {
+        statements.set(count);
+    }
+
+    /**
+     * @return the number of statements counted so far, on every thread the count was handed to
+     */
+    public int stop() {
+        AtomicInteger count = statements.get();
+        statements.remove();
+
+        return (count != null) ? count.get() : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = statements.get();
+
+        if (count != null) {
+            count.incrementAndGet();
+        }
+
+        return sql;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.minibank.metrics;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the statement count {@link RequestMetricsFilter} started on the request thread to the thread
+ * a {@link Callable} returned by a handler method runs on, so the statements it runs count towards
+ * the request.
+ */
+public class StatementCountingInterceptor implements CallableProcessingInterceptor {
+
+    private final StatementCounter statementCounter;
+
+    public StatementCountingInterceptor(StatementCounter statementCounter) {
+        this.statementCounter = statementCounter;
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object count = request.getAttribute(RequestMetricsFilter.STATEMENTS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (count instanceof AtomicInteger statements) {
+            statementCounter.resume(statements);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        statementCounter.stop();
+    }
+}
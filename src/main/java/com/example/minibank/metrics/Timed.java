@@ -0,0 +1,20 @@
+package com.example.minibank.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Times calls to a bean method in {@code minibank_operation_duration_seconds}, tagged with the
+ * operation name and the outcome of the call. See {@link TimedAspect}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timed {
+
+    /**
+     * Name of the operation, used as the {@code operation} tag.
+     */
+    String value();
+}
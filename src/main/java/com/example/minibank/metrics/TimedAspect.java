@@ -0,0 +1,45 @@
+package com.example.minibank.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the duration of every {@link Timed} method call, tagged with {@code outcome} ({@code success}
+ * or {@code failure}) and {@code exception}, the simple name of the exception the call ended with or
+ * {@code none}. The count of each tag combination is the number of calls with that outcome.
+ *
+ * <p>Runs outside any transaction the method starts, so the time includes retries and the commit.
+ */
+@Aspect
+@Component
+@Order(0)
+public class TimedAspect {
+
+    public static final String METRIC_NAME = "minibank_operation_duration_seconds";
+
+    private final MetricsRegistry metricsRegistry;
+
+    public TimedAspect(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Around("@annotation(timed)")
+    public Object time(ProceedingJoinPoint joinPoint, Timed timed) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            metricsRegistry.timer(METRIC_NAME, "operation", timed.value(),
+                    "outcome", exception.equals("none") ? "success" : "failure",
+                    "exception", exception).recordSince(start);
+        }
+    }
+}
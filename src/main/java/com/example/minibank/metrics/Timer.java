@@ -0,0 +1,26 @@
+package com.example.minibank.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of durations in seconds, with buckets from one millisecond to ten seconds.
+ */
+public class Timer extends Histogram {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public Timer() {
+        super(0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        observe(unit.toNanos(duration) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a value taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
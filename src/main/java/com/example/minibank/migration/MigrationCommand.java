@@ -0,0 +1,41 @@
+package com.example.minibank.migration;
+
+import com.example.minibank.config.MigrationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Applies pending migrations and exits, without starting the rest of the application. Runs with
+ * {@code java -jar minibank.jar migrate [--spring.datasource.url=...]}.
+ *
+ * <p>Deliberately not a {@code @Configuration}, so component scanning of the application leaves it out.
+ */
+@ImportAutoConfiguration(DataSourceAutoConfiguration.class)
+@EnableConfigurationProperties(MigrationProperties.class)
+public class MigrationCommand {
+
+    public static final String NAME = "migrate";
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationCommand.class);
+
+    public static void run(String... args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MigrationCommand.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            SchemaMigrator schemaMigrator = new SchemaMigrator(context.getBean(DataSource.class),
+                    context.getBean(MigrationProperties.class).getLocation());
+            List<String> applied = schemaMigrator.migrate();
+
+            log.info("Applied migrations: {}", applied.isEmpty() ? "none" : String.join(", ", applied));
+        }
+    }
+}
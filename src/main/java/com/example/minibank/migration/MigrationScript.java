@@ -0,0 +1,67 @@
+package com.example.minibank.migration;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A versioned migration script, named {@code V<version>__<description>.sql}. Versions are dot or
+ * underscore separated numbers compared part by part, so {@code V1_10} is applied after {@code V1_9}.
+ */
+record MigrationScript(String version, String description, String script, String content) implements Comparable<MigrationScript> {
+
+    static final String NO_TRANSACTION_DIRECTIVE = "-- migration: no-transaction";
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+(?:[._]\\d+)*)__(.+)\\.sql");
+
+    static MigrationScript load(Resource resource) {
+        Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Migration script " + resource.getFilename() + " is not named V<version>__<description>.sql");
+        }
+
+        try (InputStream in = resource.getInputStream()) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+            return new MigrationScript(matcher.group(1).replace('_', '.'), matcher.group(2).replace('_', ' '),
+                    resource.getFilename(), content);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read migration script " + resource.getFilename(), ex);
+        }
+    }
+
+    /**
+     * Scripts starting with {@value #NO_TRANSACTION_DIRECTIVE} run with auto-commit, for statements
+     * that cannot run in a transaction such as {@code CREATE INDEX CONCURRENTLY} on PostgreSQL.
+     */
+    boolean transactional() {
+        return !content.stripLeading().startsWith(NO_TRANSACTION_DIRECTIVE);
+    }
+
+    /**
+     * CRC32 of the script with normalized line endings, used to detect applied scripts that were edited.
+     */
+    int checksum() {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+
+        return (int) crc32.getValue();
+    }
+
+    @Override
+    public int compareTo(MigrationScript other) {
+        return Arrays.compare(versionParts(version), versionParts(other.version));
+    }
+
+    private static int[] versionParts(String version) {
+        return Arrays.stream(version.split("\\.")).mapToInt(Integer::parseInt).toArray();
+    }
+}
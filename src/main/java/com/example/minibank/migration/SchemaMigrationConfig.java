@@ -0,0 +1,45 @@
+package com.example.minibank.migration;
+
+import com.example.minibank.config.MigrationProperties;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.jdbc.SchemaManagement;
+import org.springframework.boot.jdbc.SchemaManagementProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+
+/**
+ * Applies pending migrations at startup, before the entity manager factory is created. Since the
+ * schema is then managed by the migrations, Hibernate's {@code ddl-auto} defaults to {@code none}
+ * even for embedded databases.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "minibank.migration", name = "enabled", matchIfMissing = true)
+@Import(SchemaMigrationConfig.EntityManagerFactoryDependsOnMigration.class)
+public class SchemaMigrationConfig {
+
+    static final String INITIALIZER_BEAN_NAME = "schemaMigrationInitializer";
+
+    @Bean(name = INITIALIZER_BEAN_NAME)
+    public InitializingBean schemaMigrationInitializer(DataSource dataSource, MigrationProperties migrationProperties) {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, migrationProperties.getLocation());
+
+        return schemaMigrator::migrate;
+    }
+
+    @Bean
+    public SchemaManagementProvider migrationSchemaManagementProvider() {
+        return dataSource -> SchemaManagement.MANAGED;
+    }
+
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigration() {
+            super(INITIALIZER_BEAN_NAME);
+        }
+    }
+}
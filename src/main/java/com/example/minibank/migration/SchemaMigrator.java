@@ -0,0 +1,204 @@
+package com.example.minibank.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Applies versioned SQL scripts to the database in version order, each at most once.
+ *
+ * <p>Applied scripts are recorded in the {@code schema_history} table together with a checksum.
+ * Editing a script after it was applied makes the next run fail, so schema changes are always
+ * made by adding a new script. A script runs in its own transaction and is recorded in the same
+ * one, unless it opts out with {@value MigrationScript#NO_TRANSACTION_DIRECTIVE}.
+ *
+ * <p>Instances starting at the same time against the same database migrate one after the other: a run
+ * first locks the row of the {@code schema_history_lock} table with {@code SELECT ... FOR UPDATE}, on a
+ * connection of its own that holds the lock until the run ends, and only then reads what was applied.
+ * A run waits for the lock as long as the database's lock timeout allows.
+ */
+public class SchemaMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+    private static final String HISTORY_TABLE = "schema_history";
+    private static final String LOCK_TABLE = "schema_history_lock";
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final DataSource dataSource;
+    private final String location;
+
+    /**
+     * @param location resource location of the scripts, where {@code {vendor}} stands for the database vendor
+     */
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    /**
+     * @return the versions that were applied by this run
+     */
+    public List<String> migrate() {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            lock(lockConnection);
+
+            try (Connection connection = dataSource.getConnection()) {
+                return migrate(connection);
+            } finally {
+                lockConnection.rollback();
+                lockConnection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Cannot migrate schema", ex);
+        }
+    }
+
+    /**
+     * Creates the lock row if needed, then locks it until the transaction the connection is left in ends.
+     */
+    private void lock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + LOCK_TABLE + " (id INTEGER NOT NULL PRIMARY KEY)");
+
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + LOCK_TABLE)) {
+                resultSet.next();
+
+                if (resultSet.getInt(1) == 0) {
+                    statement.executeUpdate("INSERT INTO " + LOCK_TABLE + " (id) VALUES (1)");
+                }
+            } catch (SQLException ex) {
+                // Another instance inserted it first
+                if (ex.getSQLState() == null || !ex.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                    throw ex;
+                }
+            }
+
+            connection.setAutoCommit(false);
+            statement.executeQuery("SELECT id FROM " + LOCK_TABLE + " WHERE id = 1 FOR UPDATE").close();
+        }
+    }
+
+    private List<String> migrate(Connection connection) throws SQLException {
+        List<MigrationScript> scripts = findScripts(connection);
+
+        createHistoryTable(connection);
+        Map<String, Integer> appliedChecksums = appliedChecksums(connection);
+        List<String> applied = new ArrayList<>();
+
+        for (MigrationScript script : scripts) {
+            Integer appliedChecksum = appliedChecksums.get(script.version());
+
+            if (appliedChecksum == null) {
+                apply(connection, script);
+                applied.add(script.version());
+            } else if (appliedChecksum != script.checksum()) {
+                throw new IllegalStateException("Migration " + script.script() + " was changed after it was applied");
+            }
+        }
+
+        log.info("Schema is up to date, applied {} of {} migrations", applied.size(), scripts.size());
+
+        return applied;
+    }
+
+    private List<MigrationScript> findScripts(Connection connection) throws SQLException {
+        String vendor = DatabaseDriver.fromJdbcUrl(connection.getMetaData().getURL()).getId();
+        String pattern = location.replace("{vendor}", vendor) + "/V*__*.sql";
+        List<MigrationScript> scripts = new ArrayList<>();
+
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(pattern)) {
+                scripts.add(MigrationScript.load(resource));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list migration scripts in " + pattern, ex);
+        }
+
+        Collections.sort(scripts);
+
+        for (int i = 1; i < scripts.size(); i++) {
+            if (scripts.get(i).compareTo(scripts.get(i - 1)) == 0) {
+                throw new IllegalStateException("Migrations " + scripts.get(i - 1).script() + " and "
+                        + scripts.get(i).script() + " have the same version");
+            }
+        }
+
+        return scripts;
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " (" +
+                    "version VARCHAR(50) NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "script VARCHAR(1000) NOT NULL, " +
+                    "checksum INTEGER NOT NULL, " +
+                    "installed_at TIMESTAMP NOT NULL, " +
+                    "execution_time_ms BIGINT NOT NULL)");
+        }
+    }
+
+    private Map<String, Integer> appliedChecksums(Connection connection) throws SQLException {
+        Map<String, Integer> checksums = new HashMap<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (resultSet.next()) {
+                checksums.put(resultSet.getString(1), resultSet.getInt(2));
+            }
+        }
+
+        return checksums;
+    }
+
+    private void apply(Connection connection, MigrationScript script) throws SQLException {
+        log.info("Applying migration {}", script.script());
+        long start = System.currentTimeMillis();
+
+        connection.setAutoCommit(!script.transactional());
+
+        try {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(
+                    new ByteArrayResource(script.content().getBytes(StandardCharsets.UTF_8), script.script()), StandardCharsets.UTF_8));
+            record(connection, script, System.currentTimeMillis() - start);
+
+            if (script.transactional()) {
+                connection.commit();
+            }
+        } catch (RuntimeException | SQLException ex) {
+            if (script.transactional()) {
+                connection.rollback();
+            }
+
+            throw new IllegalStateException("Migration " + script.script() + " failed"
+                    + (script.transactional() ? "" : ", statements that ran before the failure were not rolled back"), ex);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void record(Connection connection, MigrationScript script, long executionTimeMillis) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE +
+                " (version, description, script, checksum, installed_at, execution_time_ms) VALUES (?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, script.version());
+            statement.setString(2, script.description());
+            statement.setString(3, script.script());
+            statement.setInt(4, script.checksum());
+            statement.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            statement.setLong(6, executionTimeMillis);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.minibank.model;
 
 import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.InsufficientFundsException;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,19 +13,23 @@ import java.util.Collections;
 import java.util.List;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_accounts_code", columnNames = "code"),
+        @UniqueConstraint(name = "uk_accounts_customer_id", columnNames = "customer_id")
+})
 public class Account {
 
     @JsonIgnore
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_id")
+    @SequenceGenerator(name = "accounts_id", sequenceName = "hibernate_sequence", allocationSize = 50)
     private Integer id;
 
     @Column(name = "code", nullable = false)
     private String code;
 
     @Column(name = "balance", nullable = false)
-    private double balance;
+    private Money balance = Money.ZERO;
 
     @Column(name = "updated_at", nullable = false)
     @UpdateTimestamp
@@ -34,7 +39,12 @@ public class Account {
     @CreationTimestamp
     private LocalDateTime createdAt;
 
-    @OneToOne
+    @JsonIgnore
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", referencedColumnName = "id")
     private Customer customer;
 
@@ -46,20 +56,20 @@ public class Account {
     @OneToMany(mappedBy = "receiverAccount")
     private List<Transfer> receivedTransfers;
 
-    public synchronized void deposit(double amount) {
-        if (amount < 0) {
+    public synchronized void deposit(Money amount) {
+        if (amount.isLessThan(Money.ZERO)) {
             throw new AccountTransactionException("Cannot deposit negative amount");
         }
 
-        balance += amount;
+        balance = balance.plus(amount);
     }
 
-    public synchronized void withdraw(double amount) {
-        if (amount > balance) {
-            throw new AccountTransactionException("Insufficient funds");
+    public synchronized void withdraw(Money amount) {
+        if (amount.isGreaterThan(balance)) {
+            throw new InsufficientFundsException("Insufficient funds");
         }
 
-        balance -= amount;
+        balance = balance.minus(amount);
     }
 
     public Integer getId() {
@@ -78,14 +88,22 @@ public class Account {
         this.code = code;
     }
 
-    public double getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(double balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<Transfer> getSentTransfers() {
         return (sentTransfers != null) ? sentTransfers : Collections.emptyList();
     }
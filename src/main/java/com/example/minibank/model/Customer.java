@@ -1,7 +1,7 @@
 package com.example.minibank.model;
 
-import com.example.minibank.model.Account;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,15 +12,21 @@ import java.time.LocalDateTime;
 import java.time.Period;
 
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_customers_code", columnNames = "code"),
+        @UniqueConstraint(name = "uk_customers_email", columnNames = "email")
+})
+// Proxy internals, for when an account's customer is serialized before it is loaded
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Customer {
 
     @JsonIgnore
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_id")
+    @SequenceGenerator(name = "customers_id", sequenceName = "hibernate_sequence", allocationSize = 50)
     private Integer id;
 
-    @Column(columnDefinition = "CHAR(36)", nullable = false)
+    @Column(columnDefinition = "CHARACTER(36)", nullable = false)
     private String code;
 
     @NotBlank
@@ -30,7 +36,7 @@ public class Customer {
 
     @NotBlank(message = "Email is required")
     @Email(message = "Email is invalid")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @Column(name = "date_of_birth", nullable = false)
@@ -48,9 +54,6 @@ public class Customer {
     @Transient
     private Integer age;
 
-    @OneToOne(mappedBy = "customer")
-    private Account account;
-
     public Integer getId() {
         return id;
     }
@@ -0,0 +1,48 @@
+package com.example.minibank.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * How far the ledger journal has been applied to the accounts and transfers tables. Written in the
+ * same transaction as the changes it covers, so after a restart replay continues exactly where the
+ * database left off.
+ */
+@Entity
+@Table(name = "ledger_checkpoints")
+public class LedgerCheckpoint {
+
+    public static final Integer JOURNAL = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+
+    public LedgerCheckpoint() {
+    }
+
+    public LedgerCheckpoint(Integer id, long lastSequence) {
+        this.id = id;
+        this.lastSequence = lastSequence;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+}
@@ -9,29 +9,36 @@ import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transfers")
+@Table(name = "transfers", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transfers_code", columnNames = "code")
+}, indexes = {
+        // Transfer history is read per account, newest first
+        @Index(name = "idx_transfers_sender_created_at", columnList = "sender_account_id, created_at, id"),
+        @Index(name = "idx_transfers_receiver_created_at", columnList = "receiver_account_id, created_at, id")
+})
 public class Transfer {
 
     @JsonIgnore
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfers_seq")
+    @SequenceGenerator(name = "transfers_seq", sequenceName = "transfers_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "code", nullable = false)
     private String code;
 
     @JsonBackReference
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_account_id", referencedColumnName = "id")
     private Account senderAccount;
 
     @JsonBackReference // To avoid recursion
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_account_id", referencedColumnName = "id")
     private Account receiverAccount;
 
     @Column(name = "amount", nullable = false)
-    private double amount;
+    private Money amount;
 
     @Column(name = "remarks")
     @Size(max = 255)
@@ -73,11 +80,11 @@ public class Transfer {
         this.receiverAccount = receiverAccount;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -0,0 +1,15 @@
+package com.example.minibank.model;
+
+public enum TransferDirection {
+    SENT,
+    RECEIVED,
+    ALL;
+
+    public boolean includesSent() {
+        return this != RECEIVED;
+    }
+
+    public boolean includesReceived() {
+        return this != SENT;
+    }
+}
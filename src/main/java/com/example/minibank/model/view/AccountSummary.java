@@ -0,0 +1,39 @@
+package com.example.minibank.model.view;
+
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of an account's own columns, without its customer details or transfers. Safe to
+ * share between threads, which is what allows it to be cached.
+ */
+public record AccountSummary(
+        @JsonIgnore Integer id,
+        String code,
+        String customerCode,
+        Money balance,
+        @JsonIgnore Long version,
+        LocalDateTime updatedAt,
+        LocalDateTime createdAt
+) {
+
+    public static AccountSummary of(Account account) {
+        String customerCode = (account.getCustomer() != null) ? account.getCustomer().getCode() : null;
+
+        return new AccountSummary(account.getId(), account.getCode(), customerCode, account.getBalance(),
+                account.getVersion(), account.getUpdatedAt(), account.getCreatedAt());
+    }
+
+    /**
+     * Whether this summary reflects a later committed state of the account than the given one.
+     */
+    public boolean isNewerThan(AccountSummary other) {
+        long version = (this.version != null) ? this.version : -1;
+        long otherVersion = (other.version != null) ? other.version : -1;
+
+        return version > otherVersion;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.minibank.model.view;
+
+import com.example.minibank.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only copy of an account with its customer, selected with one join instead of loading
+ * {@link com.example.minibank.model.Account} entities and their transfers. Transfers are read through
+ * the transfer endpoints of the account.
+ */
+public record AccountView(
+        @JsonIgnore Integer id,
+        String code,
+        Money balance,
+        LocalDateTime updatedAt,
+        LocalDateTime createdAt,
+        CustomerView customer
+) {
+
+    /**
+     * Used by constructor expressions, which can only pass the customer's columns one by one.
+     */
+    public AccountView(Integer id, String code, Money balance, LocalDateTime updatedAt, LocalDateTime createdAt,
+                       Integer customerId, String customerCode, String customerName, String customerEmail,
+                       LocalDate customerDateOfBirth, LocalDateTime customerUpdatedAt, LocalDateTime customerCreatedAt) {
+        this(id, code, balance, updatedAt, createdAt, (customerId != null)
+                ? new CustomerView(customerId, customerCode, customerName, customerEmail, customerDateOfBirth,
+                        customerUpdatedAt, customerCreatedAt)
+                : null);
+    }
+}
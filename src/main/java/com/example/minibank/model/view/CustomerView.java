@@ -0,0 +1,28 @@
+package com.example.minibank.model.view;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+
+/**
+ * Read-only copy of a customer's own columns, selected directly into this type instead of loading
+ * {@link com.example.minibank.model.Customer} entities, which would also load their account.
+ */
+public record CustomerView(
+        @JsonIgnore Integer id,
+        String code,
+        String name,
+        String email,
+        LocalDate dateOfBirth,
+        LocalDateTime updatedAt,
+        LocalDateTime createdAt
+) {
+
+    @JsonProperty
+    public int age() {
+        return Period.between(dateOfBirth, LocalDate.now()).getYears();
+    }
+}
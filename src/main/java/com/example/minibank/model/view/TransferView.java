@@ -0,0 +1,21 @@
+package com.example.minibank.model.view;
+
+import com.example.minibank.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of an account's transfer history, selected directly into this type instead of
+ * loading {@link com.example.minibank.model.Transfer} entities.
+ */
+public record TransferView(
+        @JsonIgnore Integer id,
+        String code,
+        String senderAccountCode,
+        String receiverAccountCode,
+        Money amount,
+        String remarks,
+        LocalDateTime createdAt
+) {
+}
@@ -1,15 +1,79 @@
 package com.example.minibank.repository;
 
 import com.example.minibank.model.Account;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.AccountView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Integer> {
 
+    /**
+     * Fetches the customer with the account, as endpoints returning the account serialize it.
+     */
+    @EntityGraph(attributePaths = "customer")
     Optional<Account> findAccountByCode(String code);
     Optional<Account> findAccountByCustomerId(Integer id);
 
+    /**
+     * Fetches the customers with the accounts, which the account cache needs once the transaction
+     * changing them has ended.
+     */
+    @EntityGraph(attributePaths = "customer")
+    List<Account> findAccountsByCodeIn(Collection<String> codes);
+
+    String SELECT_VIEW = "SELECT new com.example.minibank.model.view.AccountView(a.id, a.code, a.balance, a.updatedAt, a.createdAt, " +
+            "c.id, c.code, c.name, c.email, c.dateOfBirth, c.updatedAt, c.createdAt) FROM Account a LEFT JOIN a.customer c ";
+
+    @Query(SELECT_VIEW + "ORDER BY a.id")
+    List<AccountView> findAllViews();
+
+    /**
+     * Keyset page of accounts in id order, starting after {@code afterId}.
+     */
+    @Query(SELECT_VIEW + "WHERE a.id > :afterId ORDER BY a.id")
+    List<AccountView> findViewsAfter(Integer afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_VIEW + "ORDER BY a.id")
+    Stream<AccountView> streamAllViews();
+
+    @Query("SELECT new com.example.minibank.model.view.AccountSummary(a.id, a.code, c.code, a.balance, a.version, a.updatedAt, a.createdAt) " +
+            "FROM Account a LEFT JOIN a.customer c WHERE a.code = :code")
+    Optional<AccountSummary> findSummaryByCode(String code);
+
+    /**
+     * Locks the accounts with {@code SELECT ... FOR UPDATE}. Rows are locked in ascending id order,
+     * which is what keeps concurrent transfers between the same accounts from deadlocking. Customers are
+     * fetched too, as with {@link #findAccountsByCodeIn}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "2000"))
+    @Query("SELECT a FROM Account a LEFT JOIN FETCH a.customer WHERE a.code IN :codes ORDER BY a.id")
+    List<Account> findAccountsByCodeForUpdate(Collection<String> codes);
+
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1, a.updatedAt = CURRENT_TIMESTAMP WHERE a.id = :id")
+    void updateBalance(Integer id, Money balance);
+
+    /**
+     * Adds {@code delta} minor units to the balance, which may be negative.
+     */
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + :delta, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = :id",
+            nativeQuery = true)
+    void adjustBalance(Integer id, long delta);
+
 }
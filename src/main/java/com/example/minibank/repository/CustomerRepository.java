@@ -1,12 +1,21 @@
 package com.example.minibank.repository;
 
 import com.example.minibank.model.Customer;
+import com.example.minibank.model.view.CustomerView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
@@ -15,4 +24,30 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
 
     @Query("SELECT c FROM Customer c WHERE c.email = :email AND c.email NOT IN (:emailsToExclude)")
     Optional<Customer> findCustomerByEmailWithExcludeList(String email, List<String> emailsToExclude);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN (:emails)")
+    List<String> findEmailsIn(Collection<String> emails);
+
+    String SELECT_VIEW = "SELECT new com.example.minibank.model.view.CustomerView(c.id, c.code, c.name, c.email, " +
+            "c.dateOfBirth, c.updatedAt, c.createdAt) FROM Customer c ";
+
+    @Query(SELECT_VIEW + "ORDER BY c.id")
+    List<CustomerView> findAllViews();
+
+    @Query(SELECT_VIEW + "WHERE c.code = :code")
+    Optional<CustomerView> findViewByCode(String code);
+
+    /**
+     * Keyset page of customers in id order, starting after {@code afterId}.
+     */
+    @Query(SELECT_VIEW + "WHERE c.id > :afterId ORDER BY c.id")
+    List<CustomerView> findViewsAfter(Integer afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_VIEW + "ORDER BY c.id")
+    Stream<CustomerView> streamAllViews();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT c.email FROM Customer c")
+    Stream<String> streamAllEmails();
 }
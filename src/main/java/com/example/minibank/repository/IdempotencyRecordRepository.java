@@ -0,0 +1,46 @@
+package com.example.minibank.repository;
+
+import com.example.minibank.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Inserts a row without a response for the key, relying on the primary key to fail when the key
+     * already has one.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at) VALUES (:key, :requestHash, :createdAt)",
+            nativeQuery = true)
+    void insertPending(String key, String requestHash, LocalDateTime createdAt);
+
+    /**
+     * Replaces the row of the key with one without a response, if it is still the row created at
+     * {@code createdAt}.
+     *
+     * @return 1 if the row was replaced
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.statusCode = NULL, r.contentType = NULL, "
+            + "r.responseBody = NULL, r.createdAt = :claimedAt WHERE r.key = :key AND r.createdAt = :createdAt")
+    int replaceWithPending(String key, LocalDateTime createdAt, String requestHash, LocalDateTime claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.statusCode IS NULL")
+    void deletePending(String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :createdAt")
+    int deleteCreatedBefore(LocalDateTime createdAt);
+}
@@ -1,7 +1,81 @@
 package com.example.minibank.repository;
 
 import com.example.minibank.model.Transfer;
+import com.example.minibank.model.view.TransferView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface TransferRepository extends JpaRepository<Transfer, Integer> {
+
+    boolean existsByCodeAndSenderAccountCode(String code, String senderAccountCode);
+
+    /**
+     * Returns every transfer the account sent, oldest first. Filtering on one direction keeps the query
+     * on the index on {@code sender_account_id}, which an {@code OR} across both directions would not.
+     */
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.senderAccount.id = :accountId ORDER BY t.id")
+    List<TransferView> findSentTransfersOfAccount(Integer accountId);
+
+    /**
+     * Same as {@link #findSentTransfersOfAccount}, for the transfers the account received.
+     */
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.receiverAccount.id = :accountId ORDER BY t.id")
+    List<TransferView> findReceivedTransfersOfAccount(Integer accountId);
+
+    /**
+     * Returns the transfers the account sent before the {@code (beforeCreatedAt, beforeId)} position, newest
+     * first. The page size is taken from {@code pageable}; its offset is ignored by callers, which page by key
+     * instead. Each direction has a query of its own, so that it is served from the index on
+     * {@code (sender_account_id, created_at, id)} alone.
+     */
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.senderAccount.id = :accountId " +
+            "AND t.createdAt >= :from " +
+            "AND (t.createdAt < :beforeCreatedAt OR (t.createdAt = :beforeCreatedAt AND t.id < :beforeId)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransferView> findSentTransferHistory(Integer accountId, LocalDateTime from, LocalDateTime beforeCreatedAt,
+                                               Integer beforeId, Pageable pageable);
+
+    /**
+     * Same as {@link #findSentTransferHistory}, for the transfers the account received.
+     */
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.receiverAccount.id = :accountId " +
+            "AND t.createdAt >= :from " +
+            "AND (t.createdAt < :beforeCreatedAt OR (t.createdAt = :beforeCreatedAt AND t.id < :beforeId)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransferView> findReceivedTransferHistory(Integer accountId, LocalDateTime from, LocalDateTime beforeCreatedAt,
+                                                   Integer beforeId, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.senderAccount.id = :accountId " +
+            "AND t.createdAt >= :from AND t.createdAt < :to " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TransferView> streamSentTransferHistory(Integer accountId, LocalDateTime from, LocalDateTime to);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT new com.example.minibank.model.view.TransferView(t.id, t.code, s.code, r.code, t.amount, t.remarks, t.createdAt) " +
+            "FROM Transfer t JOIN t.senderAccount s JOIN t.receiverAccount r " +
+            "WHERE t.receiverAccount.id = :accountId " +
+            "AND t.createdAt >= :from AND t.createdAt < :to " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TransferView> streamReceivedTransferHistory(Integer accountId, LocalDateTime from, LocalDateTime to);
 }
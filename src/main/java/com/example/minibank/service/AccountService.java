@@ -1,20 +1,36 @@
 package com.example.minibank.service;
 
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.config.TransferProperties;
 import com.example.minibank.controller.request.DepositRequest;
 import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.controller.response.TransferResult;
 import com.example.minibank.model.Customer;
 import com.example.minibank.exception.AccountExistsException;
 import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.LedgerTimeoutException;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.metrics.Timed;
 import com.example.minibank.model.Account;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.AccountView;
+import com.example.minibank.model.view.TransferView;
 import com.example.minibank.repository.AccountRepository;
 import com.example.minibank.model.Transfer;
 import com.example.minibank.repository.TransferRepository;
 import com.example.minibank.validator.AccountTransactionValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class AccountService {
@@ -22,18 +38,52 @@ public class AccountService {
     public static final int MINIMUM_DEPOSIT_AMOUNT = 1;
     public static final int MAXIMUM_DEPOSIT_AMOUNT = 100_000;
     public static final int MINIMUM_TRANSFER_AMOUNT = 1;
+    public static final int MAXIMUM_REMARKS_LENGTH = 255;
 
     private final AccountRepository accountRepository;
     private final TransferRepository transferRepository;
+    private final TransactionRetrier transactionRetrier;
+    private final TransferProperties transferProperties;
+    private final Optional<LedgerEngine> ledgerEngine;
+    private final AccountCache accountCache;
+    private final Optional<DepositCoalescer> depositCoalescer;
+    private final CodeGenerator codeGenerator;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository, TransferRepository transferRepository) {
+    public AccountService(AccountRepository accountRepository, TransferRepository transferRepository,
+                          TransactionRetrier transactionRetrier, TransferProperties transferProperties,
+                          Optional<LedgerEngine> ledgerEngine, AccountCache accountCache, CodeGenerator codeGenerator) {
         this.accountRepository = accountRepository;
         this.transferRepository = transferRepository;
+        this.transactionRetrier = transactionRetrier;
+        this.transferProperties = transferProperties;
+        this.ledgerEngine = ledgerEngine;
+        this.accountCache = accountCache;
+        this.codeGenerator = codeGenerator;
+        this.depositCoalescer = transferProperties.getDepositCoalescing().isEnabled()
+                ? Optional.of(new DepositCoalescer(transferProperties.getDepositCoalescing().getWindow(), this::applyCoalescedDeposits))
+                : Optional.empty();
     }
 
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    public List<AccountView> getAllAccounts() {
+        return accountRepository.findAllViews();
+    }
+
+    public CursorPage<AccountView> getAccounts(String cursor, int size) {
+        int pageSize = CursorPage.size(size);
+        List<AccountView> accounts = accountRepository.findViewsAfter(Cursors.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+
+        return CursorPage.of(accounts, pageSize, last -> Cursors.encode(last.id()));
+    }
+
+    /**
+     * Hands every account to the consumer in id order, without holding them all in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamAccounts(Consumer<AccountView> consumer) {
+        try (var accounts = accountRepository.streamAllViews()) {
+            accounts.forEach(consumer);
+        }
     }
 
     public Account getAccount(String code) {
@@ -41,6 +91,16 @@ public class AccountService {
                 .orElseThrow(AccountNotFoundException::new);
     }
 
+    /**
+     * Served from the account cache, so repeated reads of the same account usually do not reach the
+     * database.
+     */
+    public AccountSummary getAccountSummary(String code) {
+        return accountCache.get(code)
+                .orElseThrow(AccountNotFoundException::new);
+    }
+
+    @Timed("open_account")
     @Transactional(rollbackFor = Exception.class)
     public Account openNewAccountForCustomer(Customer customer) {
         Optional<Account> accountOptional = accountRepository.findAccountByCustomerId(customer.getId());
@@ -50,30 +110,89 @@ public class AccountService {
         }
 
         Account account = new Account();
-        account.setCode(generateAccountCode());
+        account.setCode(codeGenerator.nextCode());
         account.setCustomer(customer);
-        account.setBalance(0);
+        account.setBalance(Money.ZERO);
 
         return accountRepository.save(account);
     }
 
-    public Map<String, List<Transfer>> getAllTransfers(String code) {
-        Optional<Account> account = accountRepository.findAccountByCode(code);
+    /**
+     * Opens an account for each of the customers, which must have been created in the current
+     * transaction and so cannot have one yet. The accounts are written in JDBC batches.
+     */
+    public List<Account> openAccountsForNewCustomers(List<Customer> customers) {
+        List<Account> accounts = new ArrayList<>(customers.size());
 
-        if (account.isEmpty()) {
-            throw new AccountNotFoundException();
+        for (Customer customer : customers) {
+            Account account = new Account();
+            account.setCode(codeGenerator.nextCode());
+            account.setCustomer(customer);
+            account.setBalance(Money.ZERO);
+            accounts.add(account);
         }
 
-        Map<String, List<Transfer>> transfers = new HashMap<>();
-        transfers.put("sent", account.get().getSentTransfers());
-        transfers.put("received", account.get().getReceivedTransfers());
+        return accountRepository.saveAll(accounts);
+    }
+
+    /**
+     * Reads the transfers the account sent and received with one query per direction, after finding
+     * the account in the account cache.
+     */
+    public Map<String, List<TransferView>> getAllTransfers(String code) {
+        AccountSummary account = accountCache.get(code)
+                .orElseThrow(AccountNotFoundException::new);
+
+        Map<String, List<TransferView>> transfers = new HashMap<>();
+        transfers.put("sent", transferRepository.findSentTransfersOfAccount(account.id()));
+        transfers.put("received", transferRepository.findReceivedTransfersOfAccount(account.id()));
 
         return transfers;
     }
 
-    @Transactional(rollbackFor = Exception.class)
+    @Timed("deposit")
     public Account deposit(String code, DepositRequest depositRequest) {
-        Optional<Account> account = accountRepository.findAccountByCode(code);
+        if (ledgerEngine.isPresent()) {
+            AccountTransactionValidator.validateDepositAmount(depositRequest);
+            ledgerEngine.get().deposit(code, depositRequest.getAmount());
+
+            Account account = getAccount(code);
+            accountCache.update(account);
+
+            return account;
+        }
+
+        if (depositCoalescer.isPresent()) {
+            AccountTransactionValidator.validateDepositAmount(depositRequest);
+            depositCoalescer.get().deposit(code, depositRequest.getAmount());
+
+            Account account = getAccount(code);
+            accountCache.update(account);
+
+            return account;
+        }
+
+        Account account = transactionRetrier.execute(() -> depositWithinTransaction(code, depositRequest, accountLookup(code)));
+        accountCache.update(account);
+
+        return account;
+    }
+
+    /**
+     * Applies the sum of deposits that were each validated on their own.
+     */
+    private void applyCoalescedDeposits(String code, Money total) {
+        transactionRetrier.executeWithoutResult(() -> {
+            Account account = accountLookup(code).apply(code)
+                    .orElseThrow(AccountNotFoundException::new);
+
+            account.deposit(total);
+        });
+    }
+
+    private Account depositWithinTransaction(String code, DepositRequest depositRequest,
+                                             Function<String, Optional<Account>> accountLookup) {
+        Optional<Account> account = accountLookup.apply(code);
 
         if (account.isEmpty()) {
             throw new AccountNotFoundException();
@@ -86,36 +205,180 @@ public class AccountService {
         return account.get();
     }
 
-    @Transactional(rollbackFor = Exception.class)
+    @Timed("transfer")
     public void transfer(String code, TransferRequest transferRequest) {
-        Optional<Account> senderAccount = accountRepository.findAccountByCode(code);
+        if (ledgerEngine.isPresent()) {
+            // Cached balances are invalidated by the engine once the transfer is committed to the database
+            ledgerEngine.get().transfer(code, transferRequest);
+            return;
+        }
+
+        List<Account> accounts = transactionRetrier.execute(() -> transferWithinTransaction(code, transferRequest,
+                accountLookup(code, transferRequest.getReceiverAccountCode())));
+        accounts.forEach(accountCache::update);
+    }
+
+    /**
+     * @return the sender and receiver accounts, with their new balances
+     */
+    private List<Account> transferWithinTransaction(String code, TransferRequest transferRequest,
+                                                    Function<String, Optional<Account>> accountLookup) {
+        Optional<Account> senderAccount = accountLookup.apply(code);
 
         if (senderAccount.isEmpty()) {
             throw new AccountNotFoundException("Sender account not found");
         }
 
-        Optional<Account> receiverAccount = accountRepository.findAccountByCode(transferRequest.getReceiverAccountCode());
+        Optional<Account> receiverAccount = accountLookup.apply(transferRequest.getReceiverAccountCode());
 
         if (receiverAccount.isEmpty()) {
             throw new AccountNotFoundException("Receiver account not found");
         }
 
         AccountTransactionValidator.validateTransferAmount(senderAccount.get(), transferRequest.getAmount());
+        AccountTransactionValidator.validateRemarks(transferRequest.getRemarks());
+
+        transferRepository.save(newTransfer(senderAccount.get(), receiverAccount.get(), transferRequest,
+                codeGenerator.nextCode()));
+
+        senderAccount.get().withdraw(transferRequest.getAmount());
+        receiverAccount.get().deposit(transferRequest.getAmount());
 
+        return List.of(senderAccount.get(), receiverAccount.get());
+    }
+
+    /**
+     * Executes all the transfers from the account in one transaction. Every account involved is loaded
+     * with a single query and each transfer is validated against the balances left by the ones before
+     * it. Transfers that fail validation are reported in the result and do not affect the others.
+     */
+    @Timed("transfer_batch")
+    public List<TransferResult> transferBatch(String code, List<TransferRequest> transferRequests) {
+        List<String> transferCodes = new ArrayList<>(transferRequests.size());
+        transferRequests.forEach(transferRequest -> transferCodes.add(codeGenerator.nextCode()));
+
+        return transferBatch(code, transferRequests, transferCodes);
+    }
+
+    /**
+     * Same as {@link #transferBatch(String, List)}, with the codes the transfers get, in the same order
+     * as the requests.
+     */
+    @Timed("transfer_batch")
+    public List<TransferResult> transferBatch(String code, List<TransferRequest> transferRequests, List<String> transferCodes) {
+        if (ledgerEngine.isPresent()) {
+            List<TransferResult> results = new ArrayList<>(transferRequests.size());
+
+            for (int i = 0; i < transferRequests.size(); i++) {
+                try {
+                    results.add(TransferResult.completed(i, ledgerEngine.get().transfer(code, transferRequests.get(i), transferCodes.get(i))));
+                } catch (LedgerTimeoutException ex) {
+                    // The ledger may still apply it, under the code it was given
+                    results.add(TransferResult.unknown(i, transferCodes.get(i), ex.getMessage()));
+                } catch (RuntimeException ex) {
+                    // Each transfer is applied on its own, so a failure is reported only for the one it hit
+                    results.add(TransferResult.failed(i, ex.getMessage()));
+                }
+            }
+
+            return results;
+        }
+
+        BatchOutcome outcome = transactionRetrier.execute(() -> transferBatchWithinTransaction(code, transferRequests, transferCodes));
+        outcome.accounts().forEach(accountCache::update);
+
+        return outcome.results();
+    }
+
+    private BatchOutcome transferBatchWithinTransaction(String code, List<TransferRequest> transferRequests,
+                                                        List<String> transferCodes) {
+        Set<String> codes = new HashSet<>();
+        codes.add(code);
+        transferRequests.forEach(transferRequest -> codes.add(transferRequest.getReceiverAccountCode()));
+
+        Map<String, Account> accounts = loadAccounts(codes);
+        Account senderAccount = accounts.get(code);
+
+        if (senderAccount == null) {
+            throw new AccountNotFoundException("Sender account not found");
+        }
+
+        List<TransferResult> results = new ArrayList<>(transferRequests.size());
+        List<Transfer> transfers = new ArrayList<>(transferRequests.size());
+
+        for (int i = 0; i < transferRequests.size(); i++) {
+            TransferRequest transferRequest = transferRequests.get(i);
+            Account receiverAccount = accounts.get(transferRequest.getReceiverAccountCode());
+
+            if (receiverAccount == null) {
+                results.add(TransferResult.failed(i, "Receiver account not found"));
+                continue;
+            }
+
+            try {
+                AccountTransactionValidator.validateTransferAmount(senderAccount, transferRequest.getAmount());
+                AccountTransactionValidator.validateRemarks(transferRequest.getRemarks());
+            } catch (AccountTransactionException ex) {
+                results.add(TransferResult.failed(i, ex.getMessage()));
+                continue;
+            }
+
+            Transfer transfer = newTransfer(senderAccount, receiverAccount, transferRequest, transferCodes.get(i));
+            transfers.add(transfer);
+
+            senderAccount.withdraw(transferRequest.getAmount());
+            receiverAccount.deposit(transferRequest.getAmount());
+
+            results.add(TransferResult.completed(i, transfer.getCode()));
+        }
+
+        transferRepository.saveAll(transfers);
+
+        return new BatchOutcome(results, accounts.values());
+    }
+
+    /**
+     * Returns how accounts are looked up within the current transaction, so it must be called from
+     * within the transaction. In pessimistic mode all the given accounts are locked up front in
+     * ascending id order, so two transfers touching the same accounts always lock them in the same
+     * order and cannot deadlock each other.
+     */
+    private Function<String, Optional<Account>> accountLookup(String... codes) {
+        if (transferProperties.getMode() != TransferProperties.Mode.PESSIMISTIC) {
+            return accountRepository::findAccountByCode;
+        }
+
+        Map<String, Account> lockedAccounts = loadAccounts(Arrays.asList(codes));
+
+        return code -> Optional.ofNullable(lockedAccounts.get(code));
+    }
+
+    /**
+     * Loads the accounts with one query, keyed by code. Accounts that do not exist are left out.
+     */
+    private Map<String, Account> loadAccounts(Collection<String> codes) {
+        List<Account> accounts = (transferProperties.getMode() == TransferProperties.Mode.PESSIMISTIC)
+                ? accountRepository.findAccountsByCodeForUpdate(codes)
+                : accountRepository.findAccountsByCodeIn(codes);
+
+        Map<String, Account> accountsByCode = new HashMap<>();
+        accounts.forEach(account -> accountsByCode.put(account.getCode(), account));
+
+        return accountsByCode;
+    }
+
+    private Transfer newTransfer(Account senderAccount, Account receiverAccount, TransferRequest transferRequest,
+                                 String transferCode) {
         Transfer transfer = new Transfer();
         transfer.setAmount(transferRequest.getAmount());
-        transfer.setCode(UUID.randomUUID().toString());
+        transfer.setCode(transferCode);
         transfer.setRemarks(transferRequest.getRemarks());
-        transfer.setSenderAccount(senderAccount.get());
-        transfer.setReceiverAccount(receiverAccount.get());
-        transferRepository.save(transfer);
+        transfer.setSenderAccount(senderAccount);
+        transfer.setReceiverAccount(receiverAccount);
 
-        senderAccount.get().withdraw(transferRequest.getAmount());
-        receiverAccount.get().deposit(transferRequest.getAmount());
+        return transfer;
     }
 
-    private String generateAccountCode() {
-        UUID uuid = UUID.randomUUID();
-        return uuid.toString();
+    private record BatchOutcome(List<TransferResult> results, Collection<Account> accounts) {
     }
 }
@@ -0,0 +1,43 @@
+package com.example.minibank.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Tells which database constraint a {@link DataIntegrityViolationException} was raised for, so that only
+ * a violation of that constraint is reported as what it means.
+ */
+final class Constraints {
+
+    static final String CUSTOMERS_EMAIL = "uk_customers_email";
+
+    private Constraints() {
+    }
+
+    /**
+     * Compares the constraint name Hibernate extracted from the database's error where there is one, and
+     * the messages of the exception and its causes otherwise. Databases decorate the name, H2 for one
+     * with the schema and an index suffix, so it only has to contain the constraint.
+     */
+    static boolean isViolated(DataIntegrityViolationException ex, String constraint) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return contains(violation.getConstraintName(), constraint);
+            }
+        }
+
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && contains(cause.getMessage(), constraint)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean contains(String text, String constraint) {
+        return text.toLowerCase(Locale.ROOT).contains(constraint);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.minibank.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, URL-safe cursor strings.
+ */
+final class Cursors {
+
+    private Cursors() {
+    }
+
+    static String encode(Object... keys) {
+        StringBuilder position = new StringBuilder();
+
+        for (Object key : keys) {
+            if (position.length() > 0) {
+                position.append(',');
+            }
+
+            position.append(key);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not created by {@link #encode} with the given number of keys
+     */
+    static String[] decode(String cursor, int keyCount) {
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+
+            if (keys.length == keyCount) {
+                return keys;
+            }
+        } catch (IllegalArgumentException ex) {
+            // Reported below
+        }
+
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    /**
+     * Decodes a cursor holding a single id, returning {@code Integer.MIN_VALUE} when there is no cursor.
+     */
+    static int decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Integer.MIN_VALUE;
+        }
+
+        try {
+            return Integer.parseInt(decode(cursor, 1)[0]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
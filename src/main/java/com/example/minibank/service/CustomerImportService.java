@@ -0,0 +1,281 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.EmailIndex;
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.config.CustomerImportProperties;
+import com.example.minibank.controller.response.CustomerImportResult;
+import com.example.minibank.exception.CustomerIneligibleException;
+import com.example.minibank.metrics.Counter;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.repository.CustomerRepository;
+import com.example.minibank.validator.CustomerValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Creates customers in bulk from a stream of records, for migrations that would otherwise make one
+ * {@code POST /customers} call per customer.
+ *
+ * <p>Records are read a chunk at a time. The records of a chunk are parsed and validated in parallel,
+ * with the same rules as single customers; emails taken within the chunk, or by existing customers, are
+ * found with one query for the whole chunk; and the customers left, with their accounts if asked for,
+ * are inserted in JDBC batches in one transaction. A chunk is committed before the next one is read,
+ * so its customers stay imported whatever happens to the rest of the import, and later chunks see
+ * their emails as taken.
+ */
+@Service
+public class CustomerImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    static final String EMAIL_TAKEN = "Customer email is already taken";
+    static final String DUPLICATE_EMAIL = "Email appears more than once in the import";
+    static final String NOT_STORED = "Customer could not be stored";
+
+    private final CustomerRepository customerRepository;
+    private final AccountService accountService;
+    private final EmailIndex emailIndex;
+    private final CodeGenerator codeGenerator;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService validationExecutor;
+    private final Counter imported;
+    private final Counter failed;
+
+    public CustomerImportService(CustomerRepository customerRepository, AccountService accountService,
+                                 EmailIndex emailIndex, CodeGenerator codeGenerator, Validator validator,
+                                 ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+                                 EntityManager entityManager, CustomerImportProperties customerImportProperties,
+                                 MetricsRegistry metricsRegistry) {
+        this.customerRepository = customerRepository;
+        this.accountService = accountService;
+        this.emailIndex = emailIndex;
+        this.codeGenerator = codeGenerator;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.chunkSize = customerImportProperties.getChunkSize();
+        this.parallelism = customerImportProperties.getParallelism();
+        this.imported = metricsRegistry.counter("minibank_customer_import_records_total", "result", "imported");
+        this.failed = metricsRegistry.counter("minibank_customer_import_records_total", "result", "failed");
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("customer-import-");
+        threadFactory.setDaemon(true);
+        this.validationExecutor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    }
+
+    /**
+     * Imports every record the reader holds, one per line, and hands the results of each chunk to the
+     * consumer, in record order, once the chunk is committed. Blank lines are skipped; the first line
+     * of a CSV import is its header. Records are indexed from 0, not counting blank lines or the header.
+     *
+     * @throws IllegalArgumentException if the CSV header does not name the required columns
+     */
+    public void importCustomers(BufferedReader reader, Format format, boolean openAccounts,
+                                Consumer<List<CustomerImportResult>> resultConsumer) throws IOException {
+        CustomerRecordParser parser = (format == Format.CSV)
+                ? CustomerRecordParser.csv(Objects.requireNonNullElse(reader.readLine(), ""))
+                : CustomerRecordParser.ndjson(objectMapper);
+
+        List<String> chunk = new ArrayList<>(chunkSize);
+        int firstIndex = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            chunk.add(line);
+
+            if (chunk.size() == chunkSize) {
+                resultConsumer.accept(importChunk(firstIndex, chunk, parser, openAccounts));
+                firstIndex += chunk.size();
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            resultConsumer.accept(importChunk(firstIndex, chunk, parser, openAccounts));
+        }
+    }
+
+    private List<CustomerImportResult> importChunk(int firstIndex, List<String> lines, CustomerRecordParser parser,
+                                                   boolean openAccounts) {
+        CustomerImportResult[] results = new CustomerImportResult[lines.size()];
+        Customer[] customers = parseAndValidate(firstIndex, lines, parser, results);
+        // Keyed by the email as the EmailIndex normalizes it, so spellings differing in case are duplicates too
+        Map<String, Integer> recordsByEmail = new HashMap<>();
+
+        for (int i = 0; i < customers.length; i++) {
+            if (customers[i] != null && recordsByEmail.putIfAbsent(EmailIndex.normalize(customers[i].getEmail()), i) != null) {
+                results[i] = CustomerImportResult.failed(firstIndex + i, DUPLICATE_EMAIL);
+                customers[i] = null;
+            }
+        }
+
+        List<String> possiblyTaken = recordsByEmail.values().stream()
+                .map(i -> customers[i].getEmail())
+                .filter(emailIndex::mightBeTaken)
+                .toList();
+
+        if (!possiblyTaken.isEmpty()) {
+            for (String email : customerRepository.findEmailsIn(possiblyTaken)) {
+                // A database comparing emails case-insensitively may return one spelled differently
+                Integer i = recordsByEmail.get(EmailIndex.normalize(email));
+
+                if (i != null) {
+                    results[i] = CustomerImportResult.failed(firstIndex + i, EMAIL_TAKEN);
+                    customers[i] = null;
+                }
+            }
+        }
+
+        List<Integer> accepted = new ArrayList<>();
+
+        for (int i = 0; i < customers.length; i++) {
+            if (customers[i] != null) {
+                accepted.add(i);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                insert(firstIndex, accepted, customers, openAccounts, results);
+            } catch (DataIntegrityViolationException ex) {
+                // Someone else took one of the emails since the check, or the batch broke another constraint;
+                // find out which record it was by inserting one at a time
+                for (int i : accepted) {
+                    try {
+                        insert(firstIndex, List.of(i), customers, openAccounts, results);
+                    } catch (DataIntegrityViolationException singleEx) {
+                        results[i] = CustomerImportResult.failed(firstIndex + i,
+                                Constraints.isViolated(singleEx, Constraints.CUSTOMERS_EMAIL) ? EMAIL_TAKEN : NOT_STORED);
+                    }
+                }
+            }
+        }
+
+        List<CustomerImportResult> chunkResults = Arrays.asList(results);
+        chunkResults.forEach(result -> (result.getStatus() == CustomerImportResult.Status.IMPORTED ? imported : failed).increment());
+
+        return chunkResults;
+    }
+
+    /**
+     * Parses and validates the lines on the validation threads, each taking an equal share.
+     *
+     * @return the valid customers, at the index of their line; {@code null} where the result is a failure
+     */
+    private Customer[] parseAndValidate(int firstIndex, List<String> lines, CustomerRecordParser parser,
+                                        CustomerImportResult[] results) {
+        Customer[] customers = new Customer[lines.size()];
+        int slices = Math.min(parallelism, lines.size());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[slices];
+
+        for (int slice = 0; slice < slices; slice++) {
+            int from = lines.size() * slice / slices;
+            int to = lines.size() * (slice + 1) / slices;
+
+            futures[slice] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    try {
+                        Customer customer = parser.parse(lines.get(i));
+                        Optional<String> error = validate(customer);
+
+                        if (error.isPresent()) {
+                            results[i] = CustomerImportResult.failed(firstIndex + i, error.get());
+                        } else {
+                            customers[i] = customer;
+                        }
+                    } catch (IllegalArgumentException ex) {
+                        results[i] = CustomerImportResult.failed(firstIndex + i, ex.getMessage());
+                    }
+                }
+            }, validationExecutor);
+        }
+
+        CompletableFuture.allOf(futures).join();
+
+        return customers;
+    }
+
+    private Optional<String> validate(Customer customer) {
+        Optional<String> violation = validator.validate(customer).stream()
+                .min(Comparator.comparing(constraintViolation -> constraintViolation.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage);
+
+        if (violation.isPresent()) {
+            return violation;
+        }
+
+        try {
+            CustomerValidator.validateAge(customer);
+        } catch (CustomerIneligibleException ex) {
+            return Optional.of(ex.getMessage());
+        }
+
+        return Optional.empty();
+    }
+
+    private void insert(int firstIndex, List<Integer> indexes, Customer[] customers, boolean openAccounts,
+                        CustomerImportResult[] results) {
+        List<Customer> batch = new ArrayList<>(indexes.size());
+
+        for (int i : indexes) {
+            // Cleared in case an earlier attempt was rolled back after assigning an id
+            customers[i].setId(null);
+            customers[i].setCode(codeGenerator.nextCode());
+            batch.add(customers[i]);
+        }
+
+        List<Account> accounts = transactionTemplate.execute(status -> {
+            customerRepository.saveAll(batch);
+            List<Account> opened = openAccounts ? accountService.openAccountsForNewCustomers(batch) : List.of();
+            customerRepository.flush();
+
+            // Keeps a request-scoped persistence context from growing with the import
+            entityManager.clear();
+
+            return opened;
+        });
+
+        for (int j = 0; j < indexes.size(); j++) {
+            int i = indexes.get(j);
+            String accountCode = openAccounts ? accounts.get(j).getCode() : null;
+
+            results[i] = CustomerImportResult.imported(firstIndex + i, customers[i].getCode(), accountCode);
+            emailIndex.add(customers[i].getEmail());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        validationExecutor.shutdown();
+    }
+}
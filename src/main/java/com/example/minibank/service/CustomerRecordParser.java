@@ -0,0 +1,123 @@
+package com.example.minibank.service;
+
+import com.example.minibank.model.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns one line of a customer import into a customer. Parsers are safe to use from several threads.
+ */
+interface CustomerRecordParser {
+
+    /**
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    Customer parse(String line);
+
+    /**
+     * Each line is a JSON object, as accepted by {@code POST /customers}.
+     */
+    static CustomerRecordParser ndjson(ObjectMapper objectMapper) {
+        ObjectReader reader = objectMapper.readerFor(Customer.class);
+
+        return line -> {
+            Customer customer;
+
+            try {
+                customer = reader.readValue(line);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalArgumentException("Malformed record: " + ex.getOriginalMessage());
+            }
+
+            if (customer == null) {
+                throw new IllegalArgumentException("Malformed record: not a JSON object");
+            }
+
+            return customer;
+        };
+    }
+
+    /**
+     * Each line holds comma-separated fields in the order the header names them. The header must name
+     * the {@code name}, {@code email} and {@code dateOfBirth} columns; other columns are ignored. Fields
+     * may be quoted, with quotes inside doubled, but may not span lines.
+     */
+    static CustomerRecordParser csv(String header) {
+        List<String> columns = splitCsv(header.replace("\uFEFF", "")).stream()
+                .map(column -> column.trim().replace("_", "").toLowerCase(Locale.ROOT))
+                .toList();
+
+        int nameColumn = columns.indexOf("name");
+        int emailColumn = columns.indexOf("email");
+        int dateOfBirthColumn = columns.indexOf("dateofbirth");
+
+        if (nameColumn < 0 || emailColumn < 0 || dateOfBirthColumn < 0) {
+            throw new IllegalArgumentException("CSV header must name the columns name, email and dateOfBirth");
+        }
+
+        return line -> {
+            List<String> fields = splitCsv(line);
+
+            if (fields.size() != columns.size()) {
+                throw new IllegalArgumentException("Record has " + fields.size() + " fields, header names " + columns.size());
+            }
+
+            Customer customer = new Customer();
+            customer.setName(fields.get(nameColumn).trim());
+            customer.setEmail(fields.get(emailColumn).trim());
+
+            String dateOfBirth = fields.get(dateOfBirthColumn).trim();
+
+            try {
+                customer.setDateOfBirth(dateOfBirth.isEmpty() ? null : LocalDate.parse(dateOfBirth));
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("Date of birth is invalid");
+            }
+
+            return customer;
+        };
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Record has an unterminated quoted field");
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+}
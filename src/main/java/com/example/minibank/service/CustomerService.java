@@ -1,50 +1,117 @@
 package com.example.minibank.service;
 
+import com.example.minibank.cache.EmailIndex;
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.controller.response.CursorPage;
 import com.example.minibank.model.Account;
 import com.example.minibank.model.Customer;
+import com.example.minibank.model.view.CustomerView;
 import com.example.minibank.repository.CustomerRepository;
 import com.example.minibank.exception.CustomerNotFoundException;
+import com.example.minibank.metrics.Timed;
 import com.example.minibank.validator.CustomerValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
     private final AccountService accountService;
+    private final CodeGenerator codeGenerator;
+    private final EmailIndex emailIndex;
 
     public static final int CUSTOMER_MIN_AGE_REQUIRED = 18;
 
     @Autowired
-    public CustomerService(CustomerRepository customerRepository, AccountService accountService) {
+    public CustomerService(CustomerRepository customerRepository, AccountService accountService, CodeGenerator codeGenerator,
+                           EmailIndex emailIndex) {
         this.customerRepository = customerRepository;
         this.accountService = accountService;
+        this.codeGenerator = codeGenerator;
+        this.emailIndex = emailIndex;
     }
 
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    public List<CustomerView> getAllCustomers() {
+        return customerRepository.findAllViews();
     }
 
-    public Customer getCustomer(String code) {
-        return customerRepository.findCustomerByCode(code)
+    public CursorPage<CustomerView> getCustomers(String cursor, int size) {
+        int pageSize = CursorPage.size(size);
+        List<CustomerView> customers = customerRepository.findViewsAfter(Cursors.decodeId(cursor), PageRequest.of(0, pageSize + 1));
+
+        return CursorPage.of(customers, pageSize, last -> Cursors.encode(last.id()));
+    }
+
+    /**
+     * Hands every customer to the consumer in id order, without holding them all in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamCustomers(Consumer<CustomerView> consumer) {
+        try (var customers = customerRepository.streamAllViews()) {
+            customers.forEach(consumer);
+        }
+    }
+
+    public CustomerView getCustomer(String code) {
+        return customerRepository.findViewByCode(code)
                 .orElseThrow(CustomerNotFoundException::new);
     }
 
+    @Timed("create_customer")
     @Transactional(rollbackFor = Exception.class)
     public Customer createCustomer(Customer customer) {
         CustomerValidator.validateAge(customer);
         checkCustomerExistsWithEmail(customer, "");
 
-        customer.setCode(generateCustomerCode());
+        customer.setCode(codeGenerator.nextCode());
+
+        Customer savedCustomer;
 
-        return customerRepository.save(customer);
+        // Written right away, so a taken email the check let through is reported as such
+        try {
+            savedCustomer = customerRepository.saveAndFlush(customer);
+        } catch (DataIntegrityViolationException ex) {
+            throw Constraints.isViolated(ex, Constraints.CUSTOMERS_EMAIL) ? emailTakenException() : ex;
+        }
+
+        emailIndex.add(savedCustomer.getEmail());
+
+        return savedCustomer;
+    }
+
+    /**
+     * Creates the customer and opens its account in one transaction, written with a single flush, without
+     * looking either up again as {@link #openNewAccount} would.
+     */
+    @Timed("create_customer_with_account")
+    @Transactional(rollbackFor = Exception.class)
+    public Account createCustomerWithAccount(Customer customer) {
+        CustomerValidator.validateAge(customer);
+        checkCustomerExistsWithEmail(customer, "");
+
+        customer.setCode(codeGenerator.nextCode());
+        customerRepository.save(customer);
+
+        Account account = accountService.openAccountsForNewCustomers(List.of(customer)).get(0);
+
+        try {
+            customerRepository.flush();
+        } catch (DataIntegrityViolationException ex) {
+            throw Constraints.isViolated(ex, Constraints.CUSTOMERS_EMAIL) ? emailTakenException() : ex;
+        }
+
+        emailIndex.add(customer.getEmail());
+
+        return account;
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -64,7 +131,18 @@ public class CustomerService {
         existingCustomer.setEmail(customer.getEmail());
         existingCustomer.setUpdatedAt(LocalDateTime.now());
 
-        return existingCustomer;
+        Customer savedCustomer;
+
+        // Written right away, so a taken email the check let through is reported as such
+        try {
+            savedCustomer = customerRepository.saveAndFlush(existingCustomer);
+        } catch (DataIntegrityViolationException ex) {
+            throw Constraints.isViolated(ex, Constraints.CUSTOMERS_EMAIL) ? emailTakenException() : ex;
+        }
+
+        emailIndex.add(savedCustomer.getEmail());
+
+        return savedCustomer;
     }
 
     public Account openNewAccount(String code) {
@@ -77,19 +155,25 @@ public class CustomerService {
         return accountService.openNewAccountForCustomer(customerOptional.get());
     }
 
+    /**
+     * Only queries the database if the email index cannot rule out that the email is taken.
+     */
     private void checkCustomerExistsWithEmail(Customer customer, String excludeEmail) {
+        if (!emailIndex.mightBeTaken(customer.getEmail())) {
+            return;
+        }
+
         Optional<Customer> customerOptional = customerRepository.findCustomerByEmailWithExcludeList(
                 customer.getEmail(),
                 List.of(excludeEmail)
         );
 
         if (customerOptional.isPresent()) {
-            throw new RuntimeException("Customer email is already taken");
+            throw emailTakenException();
         }
     }
 
-    private String generateCustomerCode() {
-        UUID uuid = UUID.randomUUID();
-        return uuid.toString();
+    private static RuntimeException emailTakenException() {
+        return new RuntimeException("Customer email is already taken");
     }
 }
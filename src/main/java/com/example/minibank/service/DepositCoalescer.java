@@ -0,0 +1,113 @@
+package com.example.minibank.service;
+
+import com.example.minibank.model.Money;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Group commit for deposits into the same account. The first deposit into an account opens a batch and
+ * waits for the window to pass; deposits into the same account arriving in the meantime join the
+ * batch and wait for it. The first one then applies the sum of the batch in one transaction, and every
+ * deposit in the batch completes, or fails, with it.
+ *
+ * <p>Batches of the same account are applied one after another, so they never conflict with each
+ * other. A hot account receiving deposits continuously commits about once per window instead of once
+ * per deposit.
+ */
+class DepositCoalescer {
+
+    private final long windowNanos;
+    private final BiConsumer<String, Money> applyDeposits;
+    private final ConcurrentHashMap<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * @param applyDeposits applies the sum of a batch to the account with the given code, in one transaction
+     */
+    DepositCoalescer(Duration window, BiConsumer<String, Money> applyDeposits) {
+        this.windowNanos = window.toNanos();
+        this.applyDeposits = applyDeposits;
+    }
+
+    /**
+     * Returns once the batch the deposit joined has been applied.
+     */
+    void deposit(String code, Money amount) {
+        Batch[] joined = new Batch[1];
+        boolean[] first = new boolean[1];
+
+        // Joining and closing a batch both run under the map's lock for the account
+        batches.compute(code, (key, current) -> {
+            Batch batch = (current != null && !current.closed)
+                    ? current
+                    : new Batch((current != null) ? current.applied : CompletableFuture.completedFuture(null));
+
+            first[0] = batch.total == null;
+            batch.total = first[0] ? amount : batch.total.plus(amount);
+            joined[0] = batch;
+
+            return batch;
+        });
+
+        Batch batch = joined[0];
+
+        if (first[0]) {
+            apply(code, batch);
+        }
+
+        try {
+            batch.applied.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    private void apply(String code, Batch batch) {
+        long deadline = System.nanoTime() + windowNanos;
+
+        for (long remaining = windowNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+
+        Money[] total = new Money[1];
+
+        batches.computeIfPresent(code, (key, current) -> {
+            batch.closed = true;
+            total[0] = batch.total;
+
+            return current;
+        });
+
+        // Whatever the outcome of the batch before, it has to finish before this one starts
+        batch.previous.handle((result, ex) -> null).join();
+
+        try {
+            applyDeposits.accept(code, total[0]);
+            batch.applied.complete(null);
+        } catch (RuntimeException ex) {
+            batch.applied.completeExceptionally(ex);
+        } finally {
+            batches.remove(code, batch);
+        }
+    }
+
+    private static class Batch {
+
+        private final CompletableFuture<Void> previous;
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+        private Money total;
+        private boolean closed;
+
+        private Batch(CompletableFuture<Void> previous) {
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.minibank.service;
+
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in a new transaction and runs it again in a fresh transaction when it loses a
+ * concurrency conflict: an account version changed underneath it, a row lock was not acquired in
+ * time, or it was picked as a deadlock victim. The wait between attempts grows exponentially up to
+ * the configured maximum and is jittered, so conflicting requests do not retry in lockstep.
+ *
+ * <p>Conflicts and retries are counted in {@code minibank_transaction_conflicts_total} and
+ * {@code minibank_transaction_retries_total}, tagged with the kind of conflict.
+ */
+@Component
+public class TransactionRetrier {
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransferProperties.Retry retry;
+    private final MetricsRegistry metricsRegistry;
+
+    public TransactionRetrier(TransactionTemplate transactionTemplate, TransferProperties transferProperties,
+                              MetricsRegistry metricsRegistry) {
+        this.transactionTemplate = transactionTemplate;
+        this.retry = transferProperties.getRetry();
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        int attempt = 1;
+
+        while (true) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException ex) {
+                String conflict = conflictType(ex);
+                metricsRegistry.counter("minibank_transaction_conflicts_total", "type", conflict).increment();
+
+                if (attempt >= retry.getMaxAttempts()) {
+                    throw ex;
+                }
+
+                metricsRegistry.counter("minibank_transaction_retries_total", "type", conflict).increment();
+                backOff(attempt++);
+            }
+        }
+    }
+
+    public void executeWithoutResult(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backOff(int attempt) {
+        long initialBackoff = retry.getInitialBackoff().toMillis();
+        long backoff = Math.min(retry.getMaxBackoff().toMillis(), initialBackoff << Math.min(attempt - 1, 20));
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry transaction", ex);
+        }
+    }
+
+    private static String conflictType(ConcurrencyFailureException ex) {
+        if (ex instanceof OptimisticLockingFailureException) {
+            return "optimistic";
+        }
+
+        if (ex instanceof PessimisticLockingFailureException) {
+            return "pessimistic";
+        }
+
+        return "other";
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.minibank.service;
+
+import com.example.minibank.model.TransferDirection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which transfers of an account to list: the direction and the {@code [from, to)} creation time range.
+ * Created through {@link TransferService#historyFilter}, which resolves the account up front.
+ */
+public record TransferHistoryFilter(Integer accountId, TransferDirection direction, LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,145 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.model.TransferDirection;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.TransferView;
+import com.example.minibank.repository.TransferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class TransferService {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final Comparator<TransferView> NEWEST_FIRST =
+            Comparator.comparing(TransferView::createdAt).thenComparing(TransferView::id).reversed();
+
+    private final AccountCache accountCache;
+    private final TransferRepository transferRepository;
+
+    @Autowired
+    public TransferService(AccountCache accountCache, TransferRepository transferRepository) {
+        this.accountCache = accountCache;
+        this.transferRepository = transferRepository;
+    }
+
+    /**
+     * @param from inclusive lower bound of the creation time, or {@code null} for no bound
+     * @param to exclusive upper bound of the creation time, or {@code null} for no bound
+     */
+    public TransferHistoryFilter historyFilter(String code, TransferDirection direction, LocalDateTime from, LocalDateTime to) {
+        Integer accountId = accountCache.get(code)
+                .map(AccountSummary::id)
+                .orElseThrow(AccountNotFoundException::new);
+
+        return new TransferHistoryFilter(
+                accountId,
+                (direction != null) ? direction : TransferDirection.ALL,
+                (from != null) ? from : EARLIEST,
+                (to != null) ? to : LATEST
+        );
+    }
+
+    /**
+     * Returns the page of transfers following the cursor, newest first. Pages are found by their
+     * {@code (created_at, id)} key rather than by offset, so every page costs the same to fetch.
+     */
+    public CursorPage<TransferView> getTransferHistory(TransferHistoryFilter filter, String cursor, int size) {
+        int pageSize = CursorPage.size(size);
+
+        LocalDateTime beforeCreatedAt = filter.to();
+        Integer beforeId = Integer.MIN_VALUE;
+
+        if (cursor != null && !cursor.isBlank()) {
+            Position position = Position.decode(cursor);
+            beforeCreatedAt = position.createdAt();
+            beforeId = position.id();
+        }
+
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<TransferView> sent = filter.direction().includesSent()
+                ? transferRepository.findSentTransferHistory(filter.accountId(), filter.from(), beforeCreatedAt, beforeId, pageRequest)
+                : List.of();
+        List<TransferView> received = filter.direction().includesReceived()
+                ? transferRepository.findReceivedTransferHistory(filter.accountId(), filter.from(), beforeCreatedAt, beforeId, pageRequest)
+                : List.of();
+
+        // Each direction fetched a full page, so the first pageSize + 1 merged transfers are the right ones
+        List<TransferView> transfers = new ArrayList<>(sent.size() + received.size());
+        merge(sent.iterator(), received.iterator(), transfers::add);
+
+        return CursorPage.of(transfers.subList(0, Math.min(transfers.size(), pageSize + 1)), pageSize,
+                last -> new Position(last.createdAt(), last.id()).encode());
+    }
+
+    /**
+     * Hands every matching transfer to the consumer as it is read from the database cursor, newest first,
+     * without holding the history in memory. With both directions, the two cursors are read side by side.
+     */
+    @Transactional(readOnly = true)
+    public void streamTransferHistory(TransferHistoryFilter filter, Consumer<TransferView> consumer) {
+        try (Stream<TransferView> sent = filter.direction().includesSent()
+                ? transferRepository.streamSentTransferHistory(filter.accountId(), filter.from(), filter.to())
+                : Stream.empty();
+             Stream<TransferView> received = filter.direction().includesReceived()
+                     ? transferRepository.streamReceivedTransferHistory(filter.accountId(), filter.from(), filter.to())
+                     : Stream.empty()) {
+            merge(sent.iterator(), received.iterator(), consumer);
+        }
+    }
+
+    /**
+     * Merges the sent and received transfers, both newest first, into one sequence newest first. A transfer
+     * the account sent to itself is in both, and handed over once.
+     */
+    private static void merge(Iterator<TransferView> sent, Iterator<TransferView> received, Consumer<TransferView> consumer) {
+        TransferView nextSent = sent.hasNext() ? sent.next() : null;
+        TransferView nextReceived = received.hasNext() ? received.next() : null;
+
+        while (nextSent != null || nextReceived != null) {
+            int order = (nextSent == null) ? 1 : (nextReceived == null) ? -1 : NEWEST_FIRST.compare(nextSent, nextReceived);
+
+            if (order <= 0) {
+                consumer.accept(nextSent);
+                nextSent = sent.hasNext() ? sent.next() : null;
+            } else {
+                consumer.accept(nextReceived);
+            }
+
+            if (order >= 0) {
+                nextReceived = received.hasNext() ? received.next() : null;
+            }
+        }
+    }
+
+    private record Position(LocalDateTime createdAt, Integer id) {
+
+        String encode() {
+            return Cursors.encode(createdAt, id);
+        }
+
+        static Position decode(String cursor) {
+            String[] keys = Cursors.decode(cursor, 2);
+
+            try {
+                return new Position(LocalDateTime.parse(keys[0]), Integer.valueOf(keys[1]));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.cache.BoundedCache;
+import com.example.minibank.code.CodeGenerator;
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.controller.response.TransferResult;
+import com.example.minibank.controller.response.TransferSubmission;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.exception.TransferNotFoundException;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.repository.TransferRepository;
+import com.example.minibank.validator.AccountTransactionValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes transfers in the background, so that submitting one only waits for it to be validated and
+ * queued, not for the accounts it touches.
+ *
+ * <p>Every worker thread has its own bounded queue and transfers are assigned to a worker by sender
+ * account, so transfers from one account are executed in the order they were submitted and workers
+ * never contend for a sender. A worker takes what is waiting in its queue, up to the batch size, and
+ * executes the transfers of each sender as one {@link AccountService#transferBatch} call. Once the
+ * queue of a worker is full, submissions for it are rejected.
+ *
+ * <p>The outcome of every executed transfer is kept for the status time to live. With the ledger a
+ * completed transfer is only written to the database some time after it was applied, so it cannot be
+ * looked up there right away. A transfer whose outcome is in doubt, because the ledger did not answer
+ * in time, is reported as {@code UNKNOWN} until it is found in the database.
+ *
+ * <p>Queued transfers are only kept in memory: whatever was waiting when the application stopped
+ * gracefully is still executed, but a crash loses it.
+ */
+@Service
+public class TransferSubmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferSubmissionService.class);
+
+    private final AccountService accountService;
+    private final AccountCache accountCache;
+    private final TransferRepository transferRepository;
+    private final MetricsRegistry metricsRegistry;
+    private final CodeGenerator codeGenerator;
+    private final int batchSize;
+    private final List<Worker> workers = new ArrayList<>();
+    private final ConcurrentHashMap<String, QueuedTransfer> pendingTransfers = new ConcurrentHashMap<>();
+    private final BoundedCache<String, Outcome> outcomes;
+    private volatile boolean running = true;
+
+    public TransferSubmissionService(AccountService accountService, AccountCache accountCache,
+                                     TransferRepository transferRepository, TransferProperties transferProperties,
+                                     MetricsRegistry metricsRegistry, CodeGenerator codeGenerator) {
+        TransferProperties.Queue queue = transferProperties.getQueue();
+
+        this.accountService = accountService;
+        this.accountCache = accountCache;
+        this.transferRepository = transferRepository;
+        this.metricsRegistry = metricsRegistry;
+        this.codeGenerator = codeGenerator;
+        this.batchSize = queue.getBatchSize();
+        this.outcomes = new BoundedCache<>("transfer_outcomes", queue.getStatusMaximumSize(), queue.getStatusTimeToLive(),
+                metricsRegistry);
+
+        for (int i = 0; i < queue.getWorkers(); i++) {
+            workers.add(new Worker("transfer-worker-" + i, Math.max(1, queue.getCapacity() / queue.getWorkers())));
+        }
+
+        metricsRegistry.gauge("minibank_transfer_queue_depth",
+                () -> workers.stream().mapToInt(worker -> worker.queue.size()).sum());
+    }
+
+    @PostConstruct
+    void start() {
+        workers.forEach(worker -> worker.thread.start());
+    }
+
+    /**
+     * Checks what can be checked without executing the transfer, that both accounts exist and the
+     * amount is allowed, and queues it. Whether the sender has enough funds is only known once it is
+     * executed.
+     *
+     * @throws TaskRejectedException if the queue is full
+     */
+    public TransferSubmission submit(String code, TransferRequest transferRequest) {
+        AccountTransactionValidator.validateTransferAmount(transferRequest.getAmount());
+        AccountTransactionValidator.validateRemarks(transferRequest.getRemarks());
+
+        if (accountCache.get(code).isEmpty()) {
+            throw new AccountNotFoundException("Sender account not found");
+        }
+
+        if (transferRequest.getReceiverAccountCode() == null || accountCache.get(transferRequest.getReceiverAccountCode()).isEmpty()) {
+            throw new AccountNotFoundException("Receiver account not found");
+        }
+
+        QueuedTransfer transfer = new QueuedTransfer(codeGenerator.nextCode(), code, transferRequest);
+        pendingTransfers.put(transfer.transferCode(), transfer);
+
+        if (!running || !workerFor(code).queue.offer(transfer)) {
+            pendingTransfers.remove(transfer.transferCode());
+            metricsRegistry.counter("minibank_transfer_submissions_total", "result", "rejected").increment();
+            throw new TaskRejectedException("Transfer queue is full");
+        }
+
+        metricsRegistry.counter("minibank_transfer_submissions_total", "result", "accepted").increment();
+
+        return TransferSubmission.pending(transfer.transferCode());
+    }
+
+    public TransferSubmission getSubmission(String code, String transferCode) {
+        QueuedTransfer pending = pendingTransfers.get(transferCode);
+
+        if (pending != null && pending.senderCode().equals(code)) {
+            return TransferSubmission.pending(transferCode);
+        }
+
+        Optional<Outcome> outcome = outcomes.get(transferCode);
+
+        if (outcome.isPresent() && outcome.get().senderCode().equals(code)) {
+            TransferSubmission submission = outcome.get().submission();
+
+            if (submission.getStatus() != TransferSubmission.Status.UNKNOWN
+                    || !transferRepository.existsByCodeAndSenderAccountCode(transferCode, code)) {
+                return submission;
+            }
+
+            TransferSubmission completed = TransferSubmission.completed(transferCode);
+            outcomes.put(transferCode, new Outcome(code, completed));
+
+            return completed;
+        }
+
+        if (transferRepository.existsByCodeAndSenderAccountCode(transferCode, code)) {
+            return TransferSubmission.completed(transferCode);
+        }
+
+        throw new TransferNotFoundException();
+    }
+
+    private Worker workerFor(String code) {
+        return workers.get(Math.floorMod(code.hashCode(), workers.size()));
+    }
+
+    private void execute(List<QueuedTransfer> batch) {
+        Map<String, List<QueuedTransfer>> bySender = new LinkedHashMap<>();
+        batch.forEach(transfer -> bySender.computeIfAbsent(transfer.senderCode(), key -> new ArrayList<>()).add(transfer));
+
+        bySender.forEach((senderCode, transfers) -> {
+            List<TransferSubmission> submissions = new ArrayList<>(transfers.size());
+
+            try {
+                List<TransferResult> results = accountService.transferBatch(senderCode,
+                        transfers.stream().map(QueuedTransfer::transferRequest).toList(),
+                        transfers.stream().map(QueuedTransfer::transferCode).toList());
+
+                for (int i = 0; i < transfers.size(); i++) {
+                    submissions.add(submission(transfers.get(i).transferCode(), results.get(i)));
+                }
+            } catch (AccountNotFoundException ex) {
+                submissions.clear();
+                transfers.forEach(transfer -> submissions.add(TransferSubmission.failed(transfer.transferCode(), ex.getMessage())));
+            } catch (RuntimeException ex) {
+                log.error("Failed to execute {} queued transfers from account {}", transfers.size(), senderCode, ex);
+
+                submissions.clear();
+                transfers.forEach(transfer -> submissions.add(afterFailure(transfer.transferCode(), senderCode, ex)));
+            }
+
+            // The outcome is recorded before the transfer stops being pending, so it is never missing
+            for (TransferSubmission submission : submissions) {
+                outcomes.put(submission.getTransferCode(), new Outcome(senderCode, submission));
+                pendingTransfers.remove(submission.getTransferCode());
+            }
+        });
+    }
+
+    private static TransferSubmission submission(String transferCode, TransferResult result) {
+        if (result.getStatus() == TransferResult.Status.COMPLETED) {
+            return TransferSubmission.completed(transferCode);
+        }
+
+        if (result.getStatus() == TransferResult.Status.UNKNOWN) {
+            return TransferSubmission.unknown(transferCode, result.getMessage());
+        }
+
+        return TransferSubmission.failed(transferCode, result.getMessage());
+    }
+
+    /**
+     * The outcome of a transfer whose batch failed unexpectedly. The failure may have come after the
+     * batch was committed, e.g. when the commit was not acknowledged, so the transfer is looked up
+     * before it is reported as failed.
+     */
+    private TransferSubmission afterFailure(String transferCode, String senderCode, RuntimeException ex) {
+        try {
+            return transferRepository.existsByCodeAndSenderAccountCode(transferCode, senderCode)
+                    ? TransferSubmission.completed(transferCode)
+                    : TransferSubmission.failed(transferCode, ex.getMessage());
+        } catch (RuntimeException lookupEx) {
+            log.warn("Could not look up transfer {} after its batch failed", transferCode, lookupEx);
+            return TransferSubmission.unknown(transferCode, ex.getMessage());
+        }
+    }
+
+    /**
+     * Stops taking submissions and waits for the workers to execute what is already queued.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+
+        for (Worker worker : workers) {
+            worker.thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private record QueuedTransfer(String transferCode, String senderCode, TransferRequest transferRequest) {
+    }
+
+    private record Outcome(String senderCode, TransferSubmission submission) {
+    }
+
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<QueuedTransfer> queue;
+        private final Thread thread;
+
+        private Worker(String name, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<QueuedTransfer> batch = new ArrayList<>(batchSize);
+
+            while (running || !queue.isEmpty()) {
+                try {
+                    QueuedTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                    if (first == null) {
+                        continue;
+                    }
+
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    execute(batch);
+                    batch.clear();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException ex) {
+                    log.error("Transfer worker failed to execute {} transfers", batch.size(), ex);
+                    batch.clear();
+                }
+            }
+        }
+    }
+}
@@ -2,22 +2,60 @@ package com.example.minibank.validator;
 
 import com.example.minibank.controller.request.DepositRequest;
 import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.InsufficientFundsException;
 import com.example.minibank.model.Account;
+import com.example.minibank.model.Money;
 import com.example.minibank.service.AccountService;
 
 public class AccountTransactionValidator {
+    private static final Money MINIMUM_DEPOSIT_AMOUNT = Money.of(AccountService.MINIMUM_DEPOSIT_AMOUNT);
+    private static final Money MAXIMUM_DEPOSIT_AMOUNT = Money.of(AccountService.MAXIMUM_DEPOSIT_AMOUNT);
+    private static final long MINIMUM_TRANSFER_MINOR_UNITS = Money.of(AccountService.MINIMUM_TRANSFER_AMOUNT).minorUnits();
+
     public static void validateDepositAmount(DepositRequest depositRequest) {
-        if (depositRequest.getAmount() < AccountService.MINIMUM_DEPOSIT_AMOUNT) {
+        Money amount = depositRequest.getAmount();
+
+        if (amount == null || amount.isLessThan(MINIMUM_DEPOSIT_AMOUNT)) {
             throw new AccountTransactionException("Deposit amount cannot be less than " + AccountService.MINIMUM_DEPOSIT_AMOUNT);
         }
 
-        if (depositRequest.getAmount() > AccountService.MAXIMUM_DEPOSIT_AMOUNT) {
+        if (amount.isGreaterThan(MAXIMUM_DEPOSIT_AMOUNT)) {
             throw new AccountTransactionException("Deposit amount cannot be more than " + AccountService.MAXIMUM_DEPOSIT_AMOUNT);
         }
     }
 
-    public static void validateTransferAmount(Account account, double amount) {
+    public static void validateTransferAmount(Account account, Money amount) {
+        validateTransferAmount(account.getBalance().minorUnits(), (amount != null) ? amount.minorUnits() : 0);
+    }
+
+    public static void validateTransferAmount(long balanceMinorUnits, long amountMinorUnits) {
+        validateMinimumTransferAmount(amountMinorUnits);
+
+        if (amountMinorUnits > balanceMinorUnits) {
+            throw new InsufficientFundsException("Insufficient funds to make the transfer");
+        }
+    }
 
+    /**
+     * Checks only what does not depend on the balance, for transfers that are executed later.
+     */
+    public static void validateTransferAmount(Money amount) {
+        validateMinimumTransferAmount((amount != null) ? amount.minorUnits() : 0);
+    }
+
+    /**
+     * Remarks are stored with the transfer, in a column of limited length.
+     */
+    public static void validateRemarks(String remarks) {
+        if (remarks != null && remarks.length() > AccountService.MAXIMUM_REMARKS_LENGTH) {
+            throw new AccountTransactionException("Remarks cannot be longer than " + AccountService.MAXIMUM_REMARKS_LENGTH + " characters");
+        }
+    }
+
+    private static void validateMinimumTransferAmount(long amountMinorUnits) {
+        if (amountMinorUnits < MINIMUM_TRANSFER_MINOR_UNITS) {
+            throw new AccountTransactionException("Transfer amount cannot be less than " + AccountService.MINIMUM_TRANSFER_AMOUNT);
+        }
     }
 
 }
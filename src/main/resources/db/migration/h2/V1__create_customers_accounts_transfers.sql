@@ -0,0 +1,43 @@
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE transfers_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE customers (
+    id            INTEGER       NOT NULL,
+    code          CHARACTER(36) NOT NULL,
+    name          VARCHAR(255)  NOT NULL,
+    email         VARCHAR(255)  NOT NULL,
+    date_of_birth DATE          NOT NULL,
+    created_at    TIMESTAMP     NOT NULL,
+    updated_at    TIMESTAMP     NOT NULL,
+    CONSTRAINT pk_customers PRIMARY KEY (id),
+    CONSTRAINT uk_customers_code UNIQUE (code),
+    CONSTRAINT uk_customers_email UNIQUE (email)
+);
+
+CREATE TABLE accounts (
+    id          INTEGER      NOT NULL,
+    code        VARCHAR(255) NOT NULL,
+    balance     DOUBLE       NOT NULL,
+    version     BIGINT       NOT NULL,
+    customer_id INTEGER,
+    created_at  TIMESTAMP    NOT NULL,
+    updated_at  TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_accounts PRIMARY KEY (id),
+    CONSTRAINT uk_accounts_code UNIQUE (code),
+    CONSTRAINT uk_accounts_customer_id UNIQUE (customer_id),
+    CONSTRAINT fk_accounts_customer FOREIGN KEY (customer_id) REFERENCES customers (id)
+);
+
+CREATE TABLE transfers (
+    id                  INTEGER      NOT NULL,
+    code                VARCHAR(255) NOT NULL,
+    sender_account_id   INTEGER,
+    receiver_account_id INTEGER,
+    amount              DOUBLE       NOT NULL,
+    remarks             VARCHAR(255),
+    created_at          TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_transfers PRIMARY KEY (id),
+    CONSTRAINT uk_transfers_code UNIQUE (code),
+    CONSTRAINT fk_transfers_sender_account FOREIGN KEY (sender_account_id) REFERENCES accounts (id),
+    CONSTRAINT fk_transfers_receiver_account FOREIGN KEY (receiver_account_id) REFERENCES accounts (id)
+);
@@ -0,0 +1,5 @@
+-- migration: no-transaction
+-- Index builds run outside a transaction, which is what online builds need on databases that have
+-- them (CREATE INDEX CONCURRENTLY on PostgreSQL). Transfer history is read per account, newest first.
+CREATE INDEX IF NOT EXISTS idx_transfers_sender_created_at ON transfers (sender_account_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_transfers_receiver_created_at ON transfers (receiver_account_id, created_at, id);
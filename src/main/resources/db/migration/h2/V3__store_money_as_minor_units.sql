@@ -0,0 +1,12 @@
+-- Balances and amounts become whole numbers of minor units (cents)
+ALTER TABLE accounts ADD COLUMN balance_minor_units BIGINT;
+UPDATE accounts SET balance_minor_units = CAST(ROUND(balance * 100) AS BIGINT);
+ALTER TABLE accounts DROP COLUMN balance;
+ALTER TABLE accounts ALTER COLUMN balance_minor_units RENAME TO balance;
+ALTER TABLE accounts ALTER COLUMN balance SET NOT NULL;
+
+ALTER TABLE transfers ADD COLUMN amount_minor_units BIGINT;
+UPDATE transfers SET amount_minor_units = CAST(ROUND(amount * 100) AS BIGINT);
+ALTER TABLE transfers DROP COLUMN amount;
+ALTER TABLE transfers ALTER COLUMN amount_minor_units RENAME TO amount;
+ALTER TABLE transfers ALTER COLUMN amount SET NOT NULL;
@@ -0,0 +1,6 @@
+-- Sequence of the last journal record applied to accounts and transfers, when the ledger journal is enabled
+CREATE TABLE ledger_checkpoints (
+    id            INTEGER NOT NULL,
+    last_sequence BIGINT  NOT NULL,
+    CONSTRAINT pk_ledger_checkpoints PRIMARY KEY (id)
+);
@@ -0,0 +1,10 @@
+-- Responses to transfer and deposit requests sent with an Idempotency-Key header, replayed to retries
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255)  NOT NULL,
+    request_hash    VARCHAR(64)   NOT NULL,
+    status_code     INTEGER       NOT NULL,
+    content_type    VARCHAR(255),
+    response_body   BLOB,
+    created_at      TIMESTAMP     NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (idempotency_key)
+);
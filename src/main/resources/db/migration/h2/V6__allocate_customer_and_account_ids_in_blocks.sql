@@ -0,0 +1,3 @@
+-- Customers and accounts take ids from hibernate_sequence in blocks of 50, as transfers do from
+-- transfers_seq, so inserting many of them does not cost a sequence call per row
+ALTER SEQUENCE hibernate_sequence INCREMENT BY 50;
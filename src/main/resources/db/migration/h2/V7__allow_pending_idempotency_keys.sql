@@ -0,0 +1,3 @@
+-- A key is claimed by inserting its row before the request is handled, and the row has no response
+-- until the request completes
+ALTER TABLE idempotency_keys ALTER COLUMN status_code SET NULL;
@@ -0,0 +1,133 @@
+package com.example.minibank.benchmark;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Compares lookup latency of the hot queries with the schema created by the migrations
+ * against copies of the same tables that only have the indexes the schema used to have, i.e. the
+ * ones created for foreign keys.
+ *
+ * <p>Only runs when asked for, against a file database under {@code target/benchmark}:
+ * <pre>
+ * mvn test -Dtest=LookupIndexBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=10000000] [-Dbenchmark.samples=20]
+ * </pre>
+ * Ten million rows per table need a few GB of disk and take several minutes to generate.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/benchmark/minibank",
+        "spring.jpa.show-sql=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LookupIndexBenchmarkTest {
+
+    private static final LocalDateTime FIRST_TRANSFER_AT = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    private final int rows = Integer.getInteger("benchmark.rows", 10_000_000);
+    private final int samples = Integer.getInteger("benchmark.samples", 20);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void generateRows() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS accounts_before, customers_before, transfers_before");
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        jdbcTemplate.execute("TRUNCATE TABLE transfers");
+        jdbcTemplate.execute("TRUNCATE TABLE accounts");
+        jdbcTemplate.execute("TRUNCATE TABLE customers");
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+
+        jdbcTemplate.update("INSERT INTO customers (id, code, name, email, date_of_birth, created_at, updated_at) " +
+                "SELECT X, 'C' || LPAD(X, 35, '0'), 'Customer ' || X, 'customer' || X || '@example.com', DATE '1990-01-01', " +
+                "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", rows);
+        jdbcTemplate.update("INSERT INTO accounts (id, code, balance, version, customer_id, created_at, updated_at) " +
+                "SELECT X, 'A' || LPAD(X, 35, '0'), 1000, 0, X, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", rows);
+        jdbcTemplate.update("INSERT INTO transfers (id, code, sender_account_id, receiver_account_id, amount, created_at) " +
+                "SELECT X, 'T' || LPAD(X, 35, '0'), MOD(X * 7919, ?) + 1, MOD(X, ?) + 1, 10, DATEADD(SECOND, X, CAST(? AS TIMESTAMP)) " +
+                "FROM SYSTEM_RANGE(1, ?)", rows, rows, FIRST_TRANSFER_AT, rows);
+
+        jdbcTemplate.execute("CREATE TABLE customers_before AS SELECT * FROM customers");
+        jdbcTemplate.execute("CREATE TABLE accounts_before AS SELECT * FROM accounts");
+        jdbcTemplate.execute("CREATE INDEX ON accounts_before (customer_id)");
+        jdbcTemplate.execute("CREATE TABLE transfers_before AS SELECT * FROM transfers");
+        jdbcTemplate.execute("CREATE INDEX ON transfers_before (sender_account_id)");
+        jdbcTemplate.execute("CREATE INDEX ON transfers_before (receiver_account_id)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void findAccountByCode() {
+        compare("findAccountByCode", "SELECT id, balance FROM %s WHERE code = ?", "accounts",
+                id -> new Object[]{"A" + pad(id)});
+    }
+
+    @Test
+    void findCustomerByCode() {
+        compare("findCustomerByCode", "SELECT id, email FROM %s WHERE code = ?", "customers",
+                id -> new Object[]{"C" + pad(id)});
+    }
+
+    @Test
+    void findAccountByCustomerId() {
+        compare("findAccountByCustomerId", "SELECT id, code FROM %s WHERE customer_id = ?", "accounts",
+                id -> new Object[]{id});
+    }
+
+    @Test
+    void findTransferByCode() {
+        compare("findTransferByCode", "SELECT id, amount FROM %s WHERE code = ?", "transfers",
+                id -> new Object[]{"T" + pad(id)});
+    }
+
+    @Test
+    void findSentTransferHistoryPage() {
+        compare("findSentTransferHistoryPage", "SELECT id, code, created_at FROM %s WHERE sender_account_id = ? " +
+                        "AND created_at < ? ORDER BY created_at DESC, id DESC LIMIT 50", "transfers",
+                id -> new Object[]{id, FIRST_TRANSFER_AT.plusSeconds(rows + 1)});
+    }
+
+    private void compare(String name, String sql, String table, IntFunction<Object[]> arguments) {
+        long[] before = measure(String.format(sql, table + "_before"), arguments);
+        long[] after = measure(String.format(sql, table), arguments);
+
+        System.out.printf("%-28s rows=%d  before: median %,10d us  max %,10d us  |  after: median %,6d us  max %,6d us%n",
+                name, rows, before[samples / 2], before[samples - 1], after[samples / 2], after[samples - 1]);
+    }
+
+    /**
+     * @return sorted latencies in microseconds
+     */
+    private long[] measure(String sql, IntFunction<Object[]> arguments) {
+        long[] latencies = new long[samples];
+
+        // Warm up the statement and the page cache
+        jdbcTemplate.queryForList(sql, arguments.apply(1));
+
+        for (int i = 0; i < samples; i++) {
+            Object[] args = arguments.apply(ThreadLocalRandom.current().nextInt(1, rows + 1));
+            long start = System.nanoTime();
+            jdbcTemplate.queryForList(sql, args);
+            latencies[i] = (System.nanoTime() - start) / 1_000;
+        }
+
+        Arrays.sort(latencies);
+
+        return latencies;
+    }
+
+    private static String pad(int id) {
+        return String.format("%035d", id);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.minibank.benchmark;
+
+import com.example.minibank.MinibankApplication;
+import com.example.minibank.controller.request.DepositRequest;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.model.Money;
+import com.example.minibank.service.AccountService;
+import com.example.minibank.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives {@code POST /accounts/{code}/transfers} with a fixed number of concurrent clients against
+ * three server setups, to show which limit transfer throughput runs into first:
+ * <ul>
+ *     <li>thread-bound: few Tomcat threads and more connections than threads, so requests queue
+ *     for a thread</li>
+ *     <li>connection-bound: many Tomcat threads and few connections, so threads sit blocked while
+ *     queueing for a connection</li>
+ *     <li>virtual threads: one virtual thread per request, bounded only by the connection pool
+ *     (needs Java 21 or later, skipped otherwise)</li>
+ * </ul>
+ *
+ * <p>Only runs when asked for:
+ * <pre>
+ * mvn test -Dtest=TransferLoadBenchmarkTest -Dbenchmark=true [-Dbenchmark.clients=64] [-Dbenchmark.seconds=10]
+ *     [-Dbenchmark.warmup-seconds=5] [-Dbenchmark.accounts=1000]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransferLoadBenchmarkTest {
+
+    private final int clients = Integer.getInteger("benchmark.clients", 64);
+    private final int warmupSeconds = Integer.getInteger("benchmark.warmup-seconds", 5);
+    private final int seconds = Integer.getInteger("benchmark.seconds", 10);
+    private final int accounts = Integer.getInteger("benchmark.accounts", 1000);
+
+    @Test
+    void threadBound() throws Exception {
+        run("thread-bound", "server.tomcat.threads.max=8", "spring.datasource.hikari.maximum-pool-size=32");
+    }
+
+    @Test
+    void connectionBound() throws Exception {
+        run("connection-bound", "server.tomcat.threads.max=200", "spring.datasource.hikari.maximum-pool-size=4");
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21 or later");
+
+        run("virtual-threads", "minibank.virtual-threads.enabled=true", "spring.datasource.hikari.maximum-pool-size=16");
+    }
+
+    private void run(String scenario, String... properties) throws Exception {
+        try (ConfigurableApplicationContext context = start(properties)) {
+            String[] codes = openAccounts(context);
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+
+            try {
+                load(clientThreads, warmupSeconds, httpClient, baseUrl, codes, new AtomicLong());
+
+                AtomicLong failures = new AtomicLong();
+                long[] latencies = load(clientThreads, seconds, httpClient, baseUrl, codes, failures);
+
+                System.out.printf("%-18s clients=%d  %,8.0f transfers/s  p50 %,8d us  p99 %,8d us  failed %d%n",
+                        scenario, clients, latencies.length / (double) seconds, percentile(latencies, 0.50),
+                        percentile(latencies, 0.99), failures.get());
+            } finally {
+                clientThreads.shutdown();
+            }
+        }
+    }
+
+    /**
+     * @return sorted latencies of the successful transfers in microseconds
+     */
+    private long[] load(ExecutorService clientThreads, int seconds, HttpClient httpClient, String baseUrl, String[] codes,
+                        AtomicLong failures) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> clientLatencies = new ArrayList<>();
+
+        for (int i = 0; i < clients; i++) {
+            clientLatencies.add(clientThreads.submit(() -> transferUntil(deadline, httpClient, baseUrl, codes, failures)));
+        }
+
+        long[] latencies = new long[0];
+
+        for (Future<long[]> next : clientLatencies) {
+            long[] client = next.get();
+            long[] merged = Arrays.copyOf(latencies, latencies.length + client.length);
+            System.arraycopy(client, 0, merged, latencies.length, client.length);
+            latencies = merged;
+        }
+
+        Arrays.sort(latencies);
+
+        return latencies;
+    }
+
+    private ConfigurableApplicationContext start(String... properties) {
+        String[] common = {
+                "server.port=0",
+                "spring.main.banner-mode=off",
+                "spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=warn"
+        };
+
+        return new SpringApplicationBuilder(MinibankApplication.class)
+                .properties(common)
+                .properties(properties)
+                .run();
+    }
+
+    private String[] openAccounts(ConfigurableApplicationContext context) {
+        CustomerService customerService = context.getBean(CustomerService.class);
+        AccountService accountService = context.getBean(AccountService.class);
+
+        DepositRequest deposit = new DepositRequest();
+        deposit.setAmount(Money.of(AccountService.MAXIMUM_DEPOSIT_AMOUNT));
+
+        String[] codes = new String[accounts];
+
+        for (int i = 0; i < accounts; i++) {
+            Customer customer = new Customer();
+            customer.setName("Customer " + i);
+            customer.setEmail("customer" + i + "@example.com");
+            customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+            Account account = accountService.openNewAccountForCustomer(customerService.createCustomer(customer));
+            accountService.deposit(account.getCode(), deposit);
+            codes[i] = account.getCode();
+        }
+
+        return codes;
+    }
+
+    /**
+     * @return latencies of the successful transfers in microseconds
+     */
+    private static long[] transferUntil(long deadline, HttpClient httpClient, String baseUrl, String[] codes,
+                                        AtomicLong failures) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+
+        while (System.nanoTime() < deadline) {
+            int sender = ThreadLocalRandom.current().nextInt(codes.length);
+            int receiver = (sender + 1 + ThreadLocalRandom.current().nextInt(codes.length - 1)) % codes.length;
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/accounts/" + codes[sender] + "/transfers"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"receiverAccountCode\":\"" + codes[receiver] + "\",\"amount\":" + AccountService.MINIMUM_TRANSFER_AMOUNT + "}"))
+                    .build();
+
+            long start = System.nanoTime();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+
+            if (response.statusCode() >= 300) {
+                failures.incrementAndGet();
+                continue;
+            }
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = (System.nanoTime() - start) / 1_000;
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return (sorted.length == 0) ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.config.AccountCacheProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountCacheTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+    private AccountCache accountCache;
+
+    @BeforeEach
+    void setUp() {
+        accountCache = new AccountCache(accountRepository, new AccountCacheProperties(), new MetricsRegistry());
+    }
+
+    @Test
+    void canLoadAccountOnceAndServeItFromCache() {
+        when(accountRepository.findSummaryByCode("a")).thenReturn(Optional.of(summary("a", 100, 1L)));
+
+        accountCache.get("a");
+        Optional<AccountSummary> cached = accountCache.get("a");
+
+        assertThat(cached).map(AccountSummary::balance).contains(Money.of(100));
+        verify(accountRepository, times(1)).findSummaryByCode("a");
+    }
+
+    @Test
+    void canUpdateAccountWithNewerVersion() {
+        when(accountRepository.findSummaryByCode("a")).thenReturn(Optional.of(summary("a", 100, 1L)));
+        accountCache.get("a");
+
+        accountCache.update(account("a", 150, 2L));
+
+        assertThat(accountCache.get("a")).map(AccountSummary::balance).contains(Money.of(150));
+    }
+
+    @Test
+    void willKeepNewerVersionOnOutOfOrderUpdate() {
+        accountCache.update(account("a", 150, 2L));
+        accountCache.update(account("a", 100, 1L));
+
+        assertThat(accountCache.get("a")).map(AccountSummary::balance).contains(Money.of(150));
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void canReloadAccountAfterInvalidation() {
+        accountCache.update(account("a", 150, 2L));
+        accountCache.invalidate("a");
+
+        when(accountRepository.findSummaryByCode("a")).thenReturn(Optional.of(summary("a", 200, 3L)));
+
+        assertThat(accountCache.get("a")).map(AccountSummary::balance).contains(Money.of(200));
+    }
+
+    private AccountSummary summary(String code, long balance, Long version) {
+        return new AccountSummary(1, code, null, Money.of(balance), version, null, null);
+    }
+
+    private Account account(String code, long balance, Long version) {
+        Account account = new Account();
+        account.setId(1);
+        account.setCode(code);
+        account.setBalance(Money.of(balance));
+        account.setVersion(version);
+
+        return account;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.metrics.MetricsRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    private MetricsRegistry metricsRegistry;
+    private AtomicLong ticker;
+
+    @BeforeEach
+    void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        ticker = new AtomicLong();
+    }
+
+    @Test
+    void canGetValueThatWasPut() {
+        BoundedCache<String, Integer> cache = cache(10, Duration.ofMinutes(1));
+
+        cache.put("a", 1);
+
+        assertThat(cache.get("a")).contains(1);
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(hits()).isEqualTo(1);
+        assertThat(misses()).isEqualTo(1);
+    }
+
+    @Test
+    void canEvictLeastRecentlyUsedEntryWhenFull() {
+        // A single entry per segment makes eviction order exact
+        BoundedCache<String, Integer> cache = cache(1, Duration.ofMinutes(1));
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        assertThat(cache.get("a")).isEmpty();
+        assertThat(cache.get("b")).contains(2);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(metricsRegistry.counter("minibank_cache_evictions_total", "cache", "test", "cause", "size").count()).isEqualTo(1);
+    }
+
+    @Test
+    void canExpireEntryAfterTimeToLive() {
+        BoundedCache<String, Integer> cache = cache(10, Duration.ofSeconds(5));
+
+        cache.put("a", 1);
+        ticker.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertThat(cache.get("a")).contains(1);
+
+        ticker.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(cache.get("a")).isEmpty();
+        assertThat(cache.size()).isZero();
+        assertThat(metricsRegistry.counter("minibank_cache_evictions_total", "cache", "test", "cause", "expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void canMergeWithExistingValue() {
+        BoundedCache<String, Integer> cache = cache(10, Duration.ofMinutes(1));
+
+        cache.merge("a", 5, Math::max);
+        cache.merge("a", 3, Math::max);
+
+        assertThat(cache.get("a")).contains(5);
+    }
+
+    @Test
+    void canIgnoreExpiredValueOnMerge() {
+        BoundedCache<String, Integer> cache = cache(10, Duration.ofSeconds(5));
+
+        cache.put("a", 5);
+        ticker.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.merge("a", 3, Math::max);
+
+        assertThat(cache.get("a")).contains(3);
+    }
+
+    @Test
+    void canInvalidateEntry() {
+        BoundedCache<String, Integer> cache = cache(10, Duration.ofMinutes(1));
+
+        cache.put("a", 1);
+        cache.invalidate("a");
+
+        assertThat(cache.get("a")).isEmpty();
+    }
+
+    private BoundedCache<String, Integer> cache(int maximumSize, Duration timeToLive) {
+        return new BoundedCache<>("test", maximumSize, timeToLive, metricsRegistry, ticker::get);
+    }
+
+    private long hits() {
+        return metricsRegistry.counter("minibank_cache_requests_total", "cache", "test", "result", "hit").count();
+    }
+
+    private long misses() {
+        return metricsRegistry.counter("minibank_cache_requests_total", "cache", "test", "result", "miss").count();
+    }
+}
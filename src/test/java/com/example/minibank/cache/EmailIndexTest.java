@@ -0,0 +1,65 @@
+package com.example.minibank.cache;
+
+import com.example.minibank.config.EmailIndexProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmailIndexTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+    private final EmailIndexProperties emailIndexProperties = new EmailIndexProperties();
+
+    @Test
+    void willReportEveryEmailAsPossiblyTakenUntilLoaded() {
+        EmailIndex emailIndex = new EmailIndex(customerRepository, emailIndexProperties, new MetricsRegistry());
+
+        assertThat(emailIndex.mightBeTaken("alex@gmail.com")).isTrue();
+    }
+
+    @Test
+    void canRuleOutEmailsNoCustomerHas() {
+        when(customerRepository.streamAllEmails()).thenReturn(Stream.of("Alex@Gmail.com"));
+        EmailIndex emailIndex = loadedIndex();
+
+        assertThat(emailIndex.mightBeTaken("alex@gmail.com")).isTrue();
+        assertThat(emailIndex.mightBeTaken("bob@gmail.com")).isFalse();
+
+        emailIndex.add("bob@gmail.com");
+
+        assertThat(emailIndex.mightBeTaken("bob@gmail.com")).isTrue();
+    }
+
+    @Test
+    void canKeepEveryEmailWhenGrowingBeyondExpectedInsertions() {
+        emailIndexProperties.setExpectedInsertions(10);
+        when(customerRepository.count()).thenReturn(50L);
+        when(customerRepository.streamAllEmails()).thenReturn(Stream.iterate(0, i -> i + 1).limit(50).map(i -> i + "@example.com"));
+        EmailIndex emailIndex = loadedIndex();
+
+        for (int i = 50; i < 1_000; i++) {
+            emailIndex.add(i + "@example.com");
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(emailIndex.mightBeTaken(i + "@example.com")).isTrue();
+        }
+    }
+
+    private EmailIndex loadedIndex() {
+        EmailIndex emailIndex = new EmailIndex(customerRepository, emailIndexProperties, new MetricsRegistry());
+        emailIndex.load();
+
+        return emailIndex;
+    }
+}
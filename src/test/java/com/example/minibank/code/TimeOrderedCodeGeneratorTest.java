@@ -0,0 +1,72 @@
+package com.example.minibank.code;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeOrderedCodeGeneratorTest {
+
+    @Test
+    void canGenerateVersion7UuidsWithNodeId() {
+        TimeOrderedCodeGenerator generator = new TimeOrderedCodeGenerator(0xBEEF);
+        long before = System.currentTimeMillis();
+
+        UUID uuid = UUID.fromString(generator.nextCode());
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis());
+        assertThat((uuid.getLeastSignificantBits() >>> 36) & 0xFFFF).isEqualTo(0xBEEF);
+    }
+
+    @Test
+    void canGenerateIncreasingCodesWithinThread() {
+        TimeOrderedCodeGenerator generator = new TimeOrderedCodeGenerator(1);
+        String previous = generator.nextCode();
+
+        for (int i = 0; i < 100_000; i++) {
+            String code = generator.nextCode();
+
+            assertThat(code).isGreaterThan(previous);
+            previous = code;
+        }
+    }
+
+    @Test
+    void canGenerateUniqueCodesAcrossThreads() throws Exception {
+        TimeOrderedCodeGenerator generator = new TimeOrderedCodeGenerator(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        codes.add(generator.nextCode());
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(codes).hasSize(8 * 20_000);
+    }
+
+    @Test
+    void willRejectNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedCodeGenerator(0x10000));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.minibank.controller.api;
+
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.metrics.Histogram;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * With the {@code async} profile account operations run on the {@code accountTaskExecutor}, and the
+ * request is only recorded in the request metrics once it completes there.
+ */
+@SpringBootTest
+@ActiveProfiles("async")
+@AutoConfigureMockMvc
+class AsyncAccountApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Test
+    void canRecordRequestWithStatementsRunOnExecutorThread() throws Exception {
+        Account account = customerService.createCustomerWithAccount(customer());
+        Histogram duration = metricsRegistry.timer("minibank_http_request_duration_seconds",
+                "method", "GET", "uri", "/accounts/{code}", "status", "200");
+        Histogram statements = metricsRegistry.histogram("minibank_http_request_db_statements", new double[0],
+                "method", "GET", "uri", "/accounts/{code}");
+
+        MvcResult result = mockMvc.perform(get("/accounts/" + account.getCode()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(duration.count()).isZero();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(account.getCode()));
+
+        assertThat(duration.count()).isEqualTo(1);
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.sum()).isPositive();
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        customer.setName("Alex");
+        customer.setEmail(UUID.randomUUID() + "@gmail.com");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+        return customer;
+    }
+}
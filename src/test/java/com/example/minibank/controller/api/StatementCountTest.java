@@ -0,0 +1,161 @@
+package com.example.minibank.controller.api;
+
+import com.example.minibank.controller.request.DepositRequest;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.model.Money;
+import com.example.minibank.service.AccountService;
+import com.example.minibank.service.CustomerService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements each endpoint runs, with Hibernate statistics, so that a mapping or
+ * query change bringing back a query per row fails the build. Every account sends and receives
+ * transfers to several others, which a query per row would show up as.
+ *
+ * <p>Each request is made once before it is counted, so caches are warm and only the statements
+ * every request pays for are counted.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+@AutoConfigureMockMvc
+class StatementCountTest {
+
+    private static final int ACCOUNTS = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Account> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = customerService.createCustomerWithAccount(customer());
+            accountService.deposit(account.getCode(), depositRequest(1000));
+            accounts.add(account);
+        }
+
+        for (Account sender : accounts) {
+            for (Account receiver : accounts) {
+                if (sender != receiver) {
+                    accountService.transfer(sender.getCode(), transferRequest(receiver.getCode(), 10));
+                }
+            }
+        }
+    }
+
+    @Test
+    void canListAccountsWithOneStatement() throws Exception {
+        assertThat(statementsFor("/accounts")).isEqualTo(1);
+        assertThat(statementsFor("/accounts/page?size=2")).isEqualTo(1);
+    }
+
+    @Test
+    void canGetAccountWithoutLoadingCounterpartiesOfItsTransfers() throws Exception {
+        // The account with its customer, then its sent and its received transfers
+        assertThat(statementsFor("/accounts/" + accounts.get(0).getCode())).isEqualTo(3);
+        assertThat(statementsFor("/accounts/" + accounts.get(0).getCode() + "/summary")).isZero();
+    }
+
+    @Test
+    void canReadTransfersOfAccountWithOneStatementPerDirection() throws Exception {
+        String code = accounts.get(0).getCode();
+
+        assertThat(statementsFor("/accounts/" + code + "/transfers")).isEqualTo(2);
+        assertThat(statementsFor("/accounts/" + code + "/transfers/history?size=2")).isEqualTo(2);
+        assertThat(statementsFor("/accounts/" + code + "/transfers/history?direction=RECEIVED")).isEqualTo(1);
+    }
+
+    @Test
+    void canReadCustomersWithOneStatement() throws Exception {
+        assertThat(statementsFor("/customers")).isEqualTo(1);
+        assertThat(statementsFor("/customers/page?size=2")).isEqualTo(1);
+        assertThat(statementsFor("/customers/" + accounts.get(0).getCustomer().getCode())).isEqualTo(1);
+    }
+
+    @Test
+    void canTransferToSeveralAccountsWithoutStatementPerAccount() throws Exception {
+        StringJoiner transfers = new StringJoiner(",", "[", "]");
+        accounts.subList(1, ACCOUNTS).forEach(receiver ->
+                transfers.add("{\"receiverAccountCode\": \"" + receiver.getCode() + "\", \"amount\": 10}"));
+
+        // The accounts with their customers, then the transfers and the balances in one JDBC batch each
+        assertThat(statementsFor(post("/accounts/" + accounts.get(0).getCode() + "/transfers:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(transfers.toString()))).isEqualTo(3);
+    }
+
+    private long statementsFor(String path) throws Exception {
+        return statementsFor(get(path));
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        customer.setName("Alex");
+        customer.setEmail(UUID.randomUUID() + "@gmail.com");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+        return customer;
+    }
+
+    private static DepositRequest depositRequest(long amount) {
+        DepositRequest depositRequest = new DepositRequest();
+        depositRequest.setAmount(Money.of(amount));
+
+        return depositRequest;
+    }
+
+    private static TransferRequest transferRequest(String receiverCode, long amount) {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(amount));
+
+        return transferRequest;
+    }
+}
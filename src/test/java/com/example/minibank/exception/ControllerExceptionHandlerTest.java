@@ -0,0 +1,26 @@
+package com.example.minibank.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ControllerExceptionHandlerTest {
+
+    private final ControllerExceptionHandler controllerExceptionHandler = new ControllerExceptionHandler();
+
+    @Test
+    void willAskToRetryLaterWhenLockCannotBeAcquired() {
+        ResponseEntity<ErrorMessage> response = controllerExceptionHandler.concurrencyFailureException(
+                new CannotAcquireLockException("Timeout trying to lock table"), new ServletWebRequest(new MockHttpServletRequest()));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo(ControllerExceptionHandler.RETRY_AFTER_SECONDS);
+        assertThat(response.getBody().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+}
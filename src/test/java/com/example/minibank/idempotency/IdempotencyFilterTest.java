@@ -0,0 +1,217 @@
+package com.example.minibank.idempotency;
+
+import com.example.minibank.config.IdempotencyProperties;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.IdempotencyRecord;
+import com.example.minibank.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    private IdempotencyFilter idempotencyFilter;
+    private final AtomicInteger handled = new AtomicInteger();
+
+    private final FilterChain depositHandler = (request, response) -> {
+        String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"deposit\":" + body + ",\"count\":" + handled.incrementAndGet() + "}");
+    };
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyStore idempotencyStore = new IdempotencyStore(idempotencyRecordRepository, new IdempotencyProperties(),
+                new MetricsRegistry());
+        idempotencyFilter = new IdempotencyFilter(idempotencyStore, new ObjectMapper().findAndRegisterModules(),
+                new MetricsRegistry());
+    }
+
+    @Test
+    void canReplayResponseToRetryWithoutHandlingItAgain() throws Exception {
+        MockHttpServletResponse first = deposit("key-1", "{\"amount\":10}");
+        MockHttpServletResponse retry = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(200);
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        verify(idempotencyRecordRepository, times(1)).save(any());
+    }
+
+    @Test
+    void canReplayResponseStoredBeforeRestart() throws Exception {
+        MockHttpServletResponse first = deposit("key-1", "{\"amount\":10}");
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(stored.capture());
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(stored.getValue()));
+
+        setUp();
+        MockHttpServletResponse retry = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(1);
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+    }
+
+    @Test
+    void willRejectKeyReusedForDifferentRequest() throws Exception {
+        deposit("key-1", "{\"amount\":10}");
+        MockHttpServletResponse other = deposit("key-1", "{\"amount\":20}");
+
+        assertThat(handled).hasValue(1);
+        assertThat(other.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void willHandleRequestAgainOnceStoredResponseExpired() throws Exception {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(new IdempotencyRecord("key-1",
+                "hash", 200, null, new byte[0], LocalDateTime.now().minusDays(2))));
+
+        MockHttpServletResponse response = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(1);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void willKeepKeyClaimedWhenServerErrorLeavesOutcomeInDoubt() throws Exception {
+        MockHttpServletRequest request = depositRequest("key-1", "{\"amount\":10}");
+
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+        verify(idempotencyRecordRepository, never()).save(any());
+        verify(idempotencyRecordRepository, never()).deletePending(any());
+    }
+
+    @Test
+    void canReleaseKeyWhenRequestChangedNothing() throws Exception {
+        MockHttpServletRequest request = depositRequest("key-1", "{\"amount\":10}");
+
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            IdempotencyFilter.markNotApplied(new ServletWebRequest((HttpServletRequest) req));
+            ((HttpServletResponse) res).setStatus(503);
+        });
+
+        verify(idempotencyRecordRepository, never()).save(any());
+        verify(idempotencyRecordRepository).deletePending("key-1");
+    }
+
+    @Test
+    void willStopClaimingKeyThatKeepsBeingReleased() throws Exception {
+        doThrow(new DataIntegrityViolationException("pk_idempotency_keys"))
+                .when(idempotencyRecordRepository).insertPending(eq("key-1"), anyString(), any());
+
+        MockHttpServletResponse response = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(409);
+        verify(idempotencyRecordRepository, times(3)).insertPending(eq("key-1"), anyString(), any());
+    }
+
+    @Test
+    void willTurnAwayRetryWhileKeyIsClaimedOnAnotherInstance() throws Exception {
+        doThrow(new DataIntegrityViolationException("pk_idempotency_keys"))
+                .when(idempotencyRecordRepository).insertPending(eq("key-1"), anyString(), any());
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(new IdempotencyRecord("key-1",
+                "hash", null, null, null, LocalDateTime.now())));
+
+        MockHttpServletResponse response = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(409);
+        verify(idempotencyRecordRepository, never()).deletePending(any());
+    }
+
+    @Test
+    void canTakeOverClaimLeftBehindByStoppedInstance() throws Exception {
+        LocalDateTime claimedAt = LocalDateTime.now().minusHours(1);
+        doThrow(new DataIntegrityViolationException("pk_idempotency_keys"))
+                .when(idempotencyRecordRepository).insertPending(eq("key-1"), anyString(), any());
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(new IdempotencyRecord("key-1",
+                "hash", null, null, null, claimedAt)));
+        when(idempotencyRecordRepository.replaceWithPending(eq("key-1"), eq(claimedAt), anyString(), any())).thenReturn(1);
+
+        MockHttpServletResponse response = deposit("key-1", "{\"amount\":10}");
+
+        assertThat(handled).hasValue(1);
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void canReadBufferedBodyWithReadListener() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger allDataRead = new AtomicInteger();
+
+        idempotencyFilter.doFilter(depositRequest("key-1", "{\"amount\":10}"), new MockHttpServletResponse(), (request, response) -> {
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throw new AssertionError(throwable);
+                }
+            });
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"amount\":10}");
+        assertThat(allDataRead).hasValue(1);
+    }
+
+    private MockHttpServletResponse deposit(String key, String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(depositRequest(key, body), response, depositHandler);
+
+        return response;
+    }
+
+    private static MockHttpServletRequest depositRequest(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/accounts/a/deposit");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+
+        return request;
+    }
+}
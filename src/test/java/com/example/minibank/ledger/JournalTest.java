@@ -0,0 +1,155 @@
+package com.example.minibank.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void canRecoverAppendedRecordsInOrder() throws InterruptedException {
+        List<Journal.Record> committed = new ArrayList<>();
+        Journal journal = new Journal(directory, SEGMENT_SIZE, committed::add);
+        journal.recover(0, record -> {});
+        journal.start();
+
+        journal.append(deposit(1, 100)).join();
+        journal.append(transfer("T1", 40)).join();
+        journal.append(deposit(2, 5)).join();
+        journal.shutdown();
+
+        assertThat(committed).extracting(Journal.Record::sequence).containsExactly(1L, 2L, 3L);
+        assertThat(recover(0)).isEqualTo(committed);
+    }
+
+    @Test
+    void canSkipRecordsUpToSequence() throws InterruptedException {
+        write(deposit(1, 100), deposit(1, 200), deposit(1, 300));
+
+        assertThat(recover(2)).containsExactly(new Journal.Record(3, deposit(1, 300)));
+    }
+
+    @Test
+    void willDropTornRecordAndContinueAfterLastIntactOne() throws IOException, InterruptedException {
+        write(deposit(1, 100), deposit(1, 200), transfer("T1", 300));
+
+        Path segment = segmentFiles().get(0);
+        int recordSize = JournalSegment.HEADER_SIZE + deposit(1, 100).encode().length;
+
+        // Flip one byte of the last record's payload, as if the crash happened while it was written
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer lastRecordByte = ByteBuffer.allocate(1);
+            channel.read(lastRecordByte, 2L * recordSize + JournalSegment.HEADER_SIZE + 1);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~lastRecordByte.get(0)}), 2L * recordSize + JournalSegment.HEADER_SIZE + 1);
+        }
+
+        assertThat(recover(0)).extracting(Journal.Record::sequence).containsExactly(1L, 2L);
+
+        write(deposit(2, 50));
+
+        assertThat(recover(0)).containsExactly(
+                new Journal.Record(1, deposit(1, 100)),
+                new Journal.Record(2, deposit(1, 200)),
+                new Journal.Record(3, deposit(2, 50))
+        );
+    }
+
+    @Test
+    void canRollOverToNewSegmentsAndDeleteAppliedOnes() throws IOException, InterruptedException {
+        List<Journal.Record> committed = new ArrayList<>();
+        Journal journal = new Journal(directory, 256, committed::add);
+        journal.recover(0, record -> {});
+        journal.start();
+
+        for (int i = 1; i <= 20; i++) {
+            journal.append(deposit(i, i)).join();
+        }
+
+        int segmentsBefore = segmentFiles().size();
+        journal.deleteSegmentsUpTo(15);
+        journal.shutdown();
+
+        assertThat(segmentsBefore).isGreaterThan(2);
+        assertThat(segmentFiles().size()).isLessThan(segmentsBefore);
+
+        List<Journal.Record> recovered = new ArrayList<>();
+        new Journal(directory, 256, record -> {}).recover(15, recovered::add);
+
+        assertThat(recovered).isEqualTo(committed.subList(15, 20));
+    }
+
+    @Test
+    void willRejectEventThatCannotBeJournaledWithoutClosingJournal() throws InterruptedException {
+        List<Journal.Record> committed = new ArrayList<>();
+        Journal journal = new Journal(directory, 256, committed::add);
+        journal.recover(0, record -> {});
+        journal.start();
+
+        CompletableFuture<Journal.Record> tooLongToEncode = journal.append(transfer("T1", 10, "x".repeat(70_000)));
+        CompletableFuture<Journal.Record> tooLargeForSegment = journal.append(transfer("T2", 10, "x".repeat(300)));
+        journal.append(deposit(1, 100)).join();
+        journal.shutdown();
+
+        assertThatThrownBy(tooLongToEncode::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(tooLargeForSegment::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(committed).containsExactly(new Journal.Record(1, deposit(1, 100)));
+        assertThat(recover(0)).isEqualTo(committed);
+    }
+
+    private void write(JournalEvent... events) throws InterruptedException {
+        Journal journal = new Journal(directory, SEGMENT_SIZE, record -> {});
+        journal.recover(0, record -> {});
+        journal.start();
+
+        for (JournalEvent event : events) {
+            journal.append(event).join();
+        }
+
+        journal.shutdown();
+    }
+
+    private List<Journal.Record> recover(long afterSequence) throws InterruptedException {
+        List<Journal.Record> records = new ArrayList<>();
+        Journal journal = new Journal(directory, SEGMENT_SIZE, record -> {});
+        journal.recover(afterSequence, records::add);
+        journal.shutdown();
+
+        return records;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static JournalEvent deposit(int accountId, long amount) {
+        return new JournalEvent.Deposit(accountId, "A" + accountId, amount);
+    }
+
+    private static JournalEvent transfer(String code, long amount) {
+        return transfer(code, amount, null);
+    }
+
+    private static JournalEvent transfer(String code, long amount, String remarks) {
+        return new JournalEvent.Transfer(code, 1, "A1", 2, "A2", amount, remarks);
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import com.example.minibank.config.LedgerProperties;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.LedgerTimeoutException;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.Transfer;
+import com.example.minibank.repository.AccountRepository;
+import com.example.minibank.repository.LedgerCheckpointRepository;
+import com.example.minibank.repository.TransferRepository;
+import com.example.minibank.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LedgerEngineTest {
+
+    // With two shards "A" and "B" are owned by different shards, "A" and "C" by the same one
+    private static final String SHARD_ONE_CODE = "A";
+    private static final String SHARD_ZERO_CODE = "B";
+    private static final String OTHER_SHARD_ONE_CODE = "C";
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransferRepository transferRepository;
+    @Mock
+    private LedgerCheckpointRepository checkpointRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private AccountCache accountCache;
+    private LedgerEngine ledgerEngine;
+
+    @BeforeEach
+    void setUp() {
+        LedgerProperties ledgerProperties = new LedgerProperties();
+        ledgerProperties.setShards(2);
+
+        ledgerEngine = new LedgerEngine(accountRepository, transferRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), ledgerProperties, accountCache, new TimeOrderedCodeGenerator(0));
+        ledgerEngine.start();
+
+        givenAccount(1, SHARD_ONE_CODE, 1000);
+        givenAccount(2, SHARD_ZERO_CODE, 0);
+        givenAccount(3, OTHER_SHARD_ONE_CODE, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledgerEngine.stop();
+    }
+
+    @Test
+    void canTransferBetweenAccountsOnDifferentShards() {
+        ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400));
+
+        verify(accountRepository, timeout(1000)).updateBalance(1, Money.of(600));
+        verify(accountRepository, timeout(1000)).updateBalance(2, Money.of(400));
+        verifyTransferSaved(1);
+    }
+
+    @Test
+    void canTransferBetweenAccountsOnSameShard() {
+        ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(OTHER_SHARD_ONE_CODE, 250));
+
+        verify(accountRepository, timeout(1000)).updateBalance(1, Money.of(750));
+        verify(accountRepository, timeout(1000)).updateBalance(3, Money.of(250));
+        verifyTransferSaved(1);
+    }
+
+    @Test
+    void canDepositAndWaitForBalanceToBePersisted() {
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(100));
+
+        verify(accountRepository).updateBalance(2, Money.of(100));
+    }
+
+    @Test
+    void canHandleTransfersConcurrentlyInBothDirections() throws InterruptedException {
+        givenAccount(2, SHARD_ZERO_CODE, 1000);
+
+        int numberOfThreads = 100;
+        ExecutorService service = Executors.newFixedThreadPool(20);
+        CountDownLatch latch = new CountDownLatch(numberOfThreads * 2);
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            service.execute(() -> {
+                ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 5));
+                latch.countDown();
+            });
+
+            service.execute(() -> {
+                ledgerEngine.transfer(SHARD_ZERO_CODE, transferRequest(SHARD_ONE_CODE, 3));
+                latch.countDown();
+            });
+        }
+
+        latch.await();
+        service.shutdown();
+
+        // Balances are checked through a deposit, which reads the final in-memory balance
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(1));
+
+        // An intermediate balance may equal the final one, so only the last one written is checked
+        assertThat(lastBalanceWritten(1)).isEqualTo(Money.of(1000 - numberOfThreads * 2 + 1));
+        assertThat(lastBalanceWritten(2)).isEqualTo(Money.of(1000 + numberOfThreads * 2 + 1));
+    }
+
+    @Test
+    void willThrowWhenSenderDoesNotHaveEnoughFunds() {
+        AccountTransactionException thrown = assertThrows(
+                AccountTransactionException.class,
+                () -> ledgerEngine.transfer(SHARD_ZERO_CODE, transferRequest(SHARD_ONE_CODE, 10))
+        );
+
+        assertEquals("Insufficient funds to make the transfer", thrown.getMessage());
+    }
+
+    @Test
+    void willThrowWhenSenderAccountDoesNotExist() {
+        AccountNotFoundException thrown = assertThrows(
+                AccountNotFoundException.class,
+                () -> ledgerEngine.transfer("unknown", transferRequest(SHARD_ONE_CODE, 10))
+        );
+
+        assertEquals("Sender account not found", thrown.getMessage());
+    }
+
+    @Test
+    void willReverseDebitWhenReceiverAccountDoesNotExist() {
+        // "D" is owned by shard zero, so the sender is debited before the receiver is looked up
+        AccountNotFoundException thrown = assertThrows(
+                AccountNotFoundException.class,
+                () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest("D", 10))
+        );
+
+        assertEquals("Receiver account not found", thrown.getMessage());
+
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        verify(accountRepository).updateBalance(1, Money.of(1001));
+    }
+
+    @Test
+    void willReverseDebitWhenCreditFailsOnReceiverShard() {
+        when(accountRepository.findAccountByCode(SHARD_ZERO_CODE)).thenThrow(new DataAccessResourceFailureException("accounts"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 10)));
+
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        verify(accountRepository).updateBalance(1, Money.of(1001));
+    }
+
+    @Test
+    void willTakeBackDepositThatCouldNotBePersisted() {
+        doThrow(new DataAccessResourceFailureException("accounts")).when(accountRepository).updateBalance(2, Money.of(100));
+
+        assertThrows(IllegalStateException.class, () -> ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(100)));
+
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(5));
+        verify(accountRepository).updateBalance(2, Money.of(5));
+    }
+
+    @Test
+    void willTakeBackTransferThatCouldNotBePersisted() {
+        when(transferRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("transfers"));
+
+        assertThrows(IllegalStateException.class,
+                () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400)));
+
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(1));
+        assertThat(lastBalanceWritten(1)).isEqualTo(Money.of(1001));
+        assertThat(lastBalanceWritten(2)).isEqualTo(Money.of(1));
+    }
+
+    @Test
+    void willTakeBackTransferThatFailsToPersistAfterCallerTimedOut() throws InterruptedException {
+        ledgerEngine.stop();
+        LedgerProperties ledgerProperties = new LedgerProperties();
+        ledgerProperties.setShards(2);
+        ledgerProperties.setWriteTimeout(Duration.ofMillis(100));
+        ledgerEngine = new LedgerEngine(accountRepository, transferRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), ledgerProperties, accountCache, new TimeOrderedCodeGenerator(0));
+        ledgerEngine.start();
+        when(transferRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("transfers"));
+
+        // The persister retries for longer than the caller waits
+        assertThrows(LedgerTimeoutException.class,
+                () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400)));
+
+        verify(accountRepository, timeout(5000)).updateBalance(1, Money.of(1000));
+        verify(accountRepository, timeout(5000)).updateBalance(2, Money.of(0));
+    }
+
+    @Test
+    void willSkipCreditThatTimedOutAndReverseDebit() throws Exception {
+        ledgerEngine.stop();
+        LedgerProperties ledgerProperties = new LedgerProperties();
+        ledgerProperties.setShards(2);
+        ledgerProperties.setWriteTimeout(Duration.ofMillis(100));
+        ledgerEngine = new LedgerEngine(accountRepository, transferRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), ledgerProperties, accountCache, new TimeOrderedCodeGenerator(0));
+        ledgerEngine.start();
+
+        // Loading "D" holds up shard zero, which owns the receiver
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountRepository.findAccountByCode("D")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.empty();
+        });
+
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        Future<?> blocked = service.submit(() -> ledgerEngine.deposit("D", Money.of(1)));
+        loading.await();
+
+        assertThrows(LedgerTimeoutException.class,
+                () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 10)));
+
+        release.countDown();
+        assertThatThrownBy(blocked::get).hasCauseInstanceOf(AccountNotFoundException.class);
+        service.shutdown();
+
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(1));
+        verify(accountRepository).updateBalance(1, Money.of(1001));
+        verify(accountRepository).updateBalance(2, Money.of(1));
+    }
+
+    @Test
+    void canRebuildBalancesFromJournalAfterRestart(@TempDir Path directory) throws InterruptedException {
+        ledgerEngine.stop();
+        ledgerEngine = journaledEngine(directory);
+
+        ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400));
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(100));
+        ledgerEngine.stop();
+
+        // The mocked database still has the opening balances and no checkpoint, so both records are replayed
+        ledgerEngine = journaledEngine(directory);
+
+        assertThrows(AccountTransactionException.class,
+                () -> ledgerEngine.transfer(SHARD_ZERO_CODE, transferRequest(SHARD_ONE_CODE, 501)));
+
+        ledgerEngine.transfer(SHARD_ZERO_CODE, transferRequest(SHARD_ONE_CODE, 500));
+    }
+
+    @Test
+    void willApplyJournaledChangesToDatabase(@TempDir Path directory) throws InterruptedException {
+        ledgerEngine.stop();
+        ledgerEngine = journaledEngine(directory);
+
+        ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400));
+        // Deposits wait until they are applied, and the transfer was journaled before the deposit
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(100));
+
+        verify(accountRepository).adjustBalance(1, -Money.of(400).minorUnits());
+        verify(accountRepository, atLeastOnce()).adjustBalance(eq(2), anyLong());
+        verify(checkpointRepository, atLeastOnce()).save(any());
+        verifyTransferSaved(1);
+    }
+
+    @Test
+    void willRejectRemarksTooLongToStoreBeforeDebiting() {
+        TransferRequest transferRequest = transferRequest(SHARD_ZERO_CODE, 10);
+        transferRequest.setRemarks("x".repeat(AccountService.MAXIMUM_REMARKS_LENGTH + 1));
+
+        assertThrows(AccountTransactionException.class, () -> ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest));
+
+        ledgerEngine.deposit(SHARD_ONE_CODE, Money.of(1));
+        verify(accountRepository).updateBalance(1, Money.of(1001));
+    }
+
+    @Test
+    void willDeadLetterJournalRecordRejectedByDatabaseAndApplyLaterOnes(@TempDir Path directory) throws Exception {
+        ledgerEngine.stop();
+        ledgerEngine = journaledEngine(directory);
+        when(transferRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("transfers"));
+
+        String transferCode = ledgerEngine.transfer(SHARD_ONE_CODE, transferRequest(SHARD_ZERO_CODE, 400));
+        ledgerEngine.deposit(SHARD_ZERO_CODE, Money.of(100));
+
+        verify(accountRepository).adjustBalance(2, Money.of(100).minorUnits());
+        verify(accountRepository, never()).adjustBalance(1, -Money.of(400).minorUnits());
+        assertThat(Files.readString(directory.resolve(JournalProjector.DEAD_LETTERS))).contains(transferCode);
+    }
+
+    private LedgerEngine journaledEngine(Path directory) {
+        LedgerProperties ledgerProperties = new LedgerProperties();
+        ledgerProperties.setShards(2);
+        ledgerProperties.getJournal().setEnabled(true);
+        ledgerProperties.getJournal().setDirectory(directory.toString());
+        ledgerProperties.getJournal().setSegmentSize(DataSize.ofKilobytes(64));
+
+        LedgerEngine engine = new LedgerEngine(accountRepository, transferRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), ledgerProperties, accountCache, new TimeOrderedCodeGenerator(0));
+        engine.start();
+
+        return engine;
+    }
+
+    private void givenAccount(Integer id, String code, long balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setCode(code);
+        account.setBalance(Money.of(balance));
+
+        when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
+    }
+
+    private TransferRequest transferRequest(String receiverCode, long amount) {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(amount));
+
+        return transferRequest;
+    }
+
+    private Money lastBalanceWritten(Integer accountId) {
+        ArgumentCaptor<Money> balanceCaptor = ArgumentCaptor.forClass(Money.class);
+        verify(accountRepository, atLeastOnce()).updateBalance(eq(accountId), balanceCaptor.capture());
+
+        return balanceCaptor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyTransferSaved(int count) {
+        ArgumentCaptor<List<Transfer>> transfersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transferRepository, timeout(1000).atLeastOnce()).saveAll(transfersCaptor.capture());
+
+        assertThat(transfersCaptor.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(count);
+    }
+}
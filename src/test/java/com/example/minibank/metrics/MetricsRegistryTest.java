@@ -0,0 +1,69 @@
+package com.example.minibank.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Test
+    void canScrapeCountersWithSortedTags() {
+        metricsRegistry.counter("minibank_test_total", "b", "2", "a", "1").increment();
+        metricsRegistry.counter("minibank_test_total", "a", "1", "b", "2").increment();
+
+        assertThat(metricsRegistry.scrape()).isEqualTo(
+                "# TYPE minibank_test_total counter\n" +
+                "minibank_test_total{a=\"1\",b=\"2\"} 2\n");
+    }
+
+    @Test
+    void canScrapeHistogramWithCumulativeBuckets() {
+        Histogram histogram = metricsRegistry.histogram("minibank_test", new double[]{1, 5}, "kind", "x");
+        histogram.observe(1);
+        histogram.observe(3);
+        histogram.observe(10);
+
+        assertThat(metricsRegistry.scrape()).isEqualTo(
+                "# TYPE minibank_test histogram\n" +
+                "minibank_test_bucket{kind=\"x\",le=\"1.0\"} 1\n" +
+                "minibank_test_bucket{kind=\"x\",le=\"5.0\"} 2\n" +
+                "minibank_test_bucket{kind=\"x\",le=\"+Inf\"} 3\n" +
+                "minibank_test_sum{kind=\"x\"} 14.0\n" +
+                "minibank_test_count{kind=\"x\"} 3\n");
+    }
+
+    @Test
+    void canRecordTimerInSeconds() {
+        Timer timer = metricsRegistry.timer("minibank_test_seconds");
+        timer.record(20, TimeUnit.MILLISECONDS);
+
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.sum()).isEqualTo(0.02);
+        assertThat(metricsRegistry.scrape()).contains("minibank_test_seconds_bucket{le=\"0.025\"} 1\n");
+        assertThat(metricsRegistry.scrape()).contains("minibank_test_seconds_bucket{le=\"0.01\"} 0\n");
+    }
+
+    @Test
+    void canReadGaugeOnEveryScrape() {
+        int[] value = {1};
+        metricsRegistry.gauge("minibank_test_gauge", () -> value[0]);
+
+        assertThat(metricsRegistry.scrape()).contains("minibank_test_gauge 1.0\n");
+
+        value[0] = 2;
+
+        assertThat(metricsRegistry.scrape()).contains("minibank_test_gauge 2.0\n");
+    }
+
+    @Test
+    void willThrowWhenTimerNameIsRegisteredAsHistogram() {
+        metricsRegistry.histogram("minibank_test", new double[]{1});
+
+        assertThrows(IllegalArgumentException.class, () -> metricsRegistry.timer("minibank_test"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.minibank.metrics;
+
+import com.example.minibank.exception.InsufficientFundsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimedAspectTest {
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private Operations operations;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Operations());
+        proxyFactory.addAspect(new TimedAspect(metricsRegistry));
+        operations = proxyFactory.getProxy();
+    }
+
+    @Test
+    void canTimeSuccessfulCalls() {
+        operations.succeed();
+        operations.succeed();
+
+        assertThat(metricsRegistry.timer(TimedAspect.METRIC_NAME,
+                "operation", "succeed", "outcome", "success", "exception", "none").count()).isEqualTo(2);
+    }
+
+    @Test
+    void canTimeFailedCallsByException() {
+        assertThrows(InsufficientFundsException.class, () -> operations.fail());
+
+        assertThat(metricsRegistry.timer(TimedAspect.METRIC_NAME,
+                "operation", "fail", "outcome", "failure", "exception", "InsufficientFundsException").count()).isEqualTo(1);
+    }
+
+    static class Operations {
+
+        @Timed("succeed")
+        public void succeed() {
+        }
+
+        @Timed("fail")
+        public void fail() {
+            throw new InsufficientFundsException("Insufficient funds");
+        }
+    }
+}
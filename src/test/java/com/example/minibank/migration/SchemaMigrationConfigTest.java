@@ -0,0 +1,24 @@
+package com.example.minibank.migration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when the entity mappings and the schema built by the migrations drift apart.
+ */
+@SpringBootTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+class SchemaMigrationConfigTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void canValidateMappingsAgainstMigratedSchema() {
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_history ORDER BY version", String.class))
+                .containsExactly("1", "2", "3", "4", "5", "6", "7");
+    }
+}
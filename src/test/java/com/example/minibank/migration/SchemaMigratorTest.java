@@ -0,0 +1,90 @@
+package com.example.minibank.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchemaMigratorTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void canApplyScriptsInVersionOrderOnlyOnce() {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, "classpath:db/migrator-test/valid");
+
+        assertThat(schemaMigrator.migrate()).containsExactly("1", "1.1", "10");
+        assertThat(schemaMigrator.migrate()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("SELECT description FROM schema_history ORDER BY installed_at, version", String.class))
+                .containsExactly("create items", "add items", "index items");
+    }
+
+    @Test
+    void willWaitForMigrationRunningElsewhere() throws Exception {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, "classpath:db/migrator-test/valid");
+        CompletableFuture<List<String>> migrated;
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE schema_history_lock (id INTEGER NOT NULL PRIMARY KEY)");
+            statement.execute("INSERT INTO schema_history_lock (id) VALUES (1)");
+            connection.setAutoCommit(false);
+            statement.executeQuery("SELECT id FROM schema_history_lock WHERE id = 1 FOR UPDATE").close();
+
+            migrated = CompletableFuture.supplyAsync(schemaMigrator::migrate);
+            Thread.sleep(300);
+
+            assertThat(migrated).isNotDone();
+            connection.rollback();
+        }
+
+        assertThat(migrated.get(10, TimeUnit.SECONDS)).containsExactly("1", "1.1", "10");
+    }
+
+    @Test
+    void willThrowWhenAppliedScriptWasChanged() {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, "classpath:db/migrator-test/valid");
+        schemaMigrator.migrate();
+
+        jdbcTemplate.update("UPDATE schema_history SET checksum = checksum + 1 WHERE version = '1.1'");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, schemaMigrator::migrate);
+
+        assertThat(thrown.getMessage()).isEqualTo("Migration V1_1__add_items.sql was changed after it was applied");
+    }
+
+    @Test
+    void willRollBackFailedScript() {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, "classpath:db/migrator-test/failing");
+
+        assertThrows(IllegalStateException.class, schemaMigrator::migrate);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_history", String.class)).containsExactly("1");
+    }
+
+    @Test
+    void canCreateApplicationSchemaOnEmptyDatabase() {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataSource, "classpath:db/migration/{vendor}");
+
+        assertThat(schemaMigrator.migrate()).containsExactly("1", "2", "3", "4", "5", "6", "7");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transfers", Integer.class)).isZero();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.minibank.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void canAddAndSubtractWithoutRoundingError() {
+        Money total = Money.ZERO;
+
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.of(new BigDecimal("0.10")));
+        }
+
+        assertThat(total).isEqualTo(Money.of(1));
+        assertThat(total.minus(Money.ofMinorUnits(1)).minorUnits()).isEqualTo(99);
+    }
+
+    @Test
+    void willThrowWhenAmountHasMoreThanTwoDecimalPlaces() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1.001")));
+    }
+
+    @Test
+    void willThrowInsteadOfOverflowing() {
+        assertThrows(ArithmeticException.class, () -> Money.ofMinorUnits(Long.MAX_VALUE).plus(Money.ofMinorUnits(1)));
+    }
+
+    @Test
+    void canReadAndWriteJsonAsDecimal() throws Exception {
+        assertThat(objectMapper.readValue("1000", Money.class)).isEqualTo(Money.of(1000));
+        assertThat(objectMapper.readValue("12.34", Money.class).minorUnits()).isEqualTo(1234);
+        assertThat(objectMapper.writeValueAsString(Money.ofMinorUnits(1234))).isEqualTo("12.34");
+        assertThrows(ValueInstantiationException.class, () -> objectMapper.readValue("0.125", Money.class));
+    }
+
+    @Test
+    void canConvertToAndFromDatabaseColumn() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.of(5))).isEqualTo(500L);
+        assertThat(converter.convertToEntityAttribute(500L)).isEqualTo(Money.of(5));
+    }
+}
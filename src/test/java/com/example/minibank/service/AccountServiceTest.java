@@ -1,13 +1,25 @@
 package com.example.minibank.service;
 
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import com.example.minibank.config.TransferProperties;
 import com.example.minibank.controller.request.DepositRequest;
 import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.controller.response.TransferResult;
 import com.example.minibank.exception.AccountExistsException;
 import com.example.minibank.exception.AccountNotFoundException;
 import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.LedgerTimeoutException;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.metrics.MetricsRegistry;
 import com.example.minibank.model.Account;
 import com.example.minibank.model.Customer;
+import com.example.minibank.model.Money;
 import com.example.minibank.model.Transfer;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.AccountView;
+import com.example.minibank.model.view.TransferView;
 import com.example.minibank.repository.AccountRepository;
 import com.example.minibank.repository.TransferRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,16 +28,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,18 +54,67 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private TransferRepository transferRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private AccountCache accountCache;
+    private TransferProperties transferProperties;
+    private MetricsRegistry metricsRegistry;
     private AccountService accountService;
 
     @BeforeEach
     void setUp() {
-        accountService = new AccountService(accountRepository, transferRepository);
+        transferProperties = new TransferProperties();
+        metricsRegistry = new MetricsRegistry();
+        accountService = new AccountService(
+                accountRepository,
+                transferRepository,
+                new TransactionRetrier(new TransactionTemplate(transactionManager), transferProperties, metricsRegistry),
+                transferProperties,
+                Optional.empty(),
+                accountCache,
+                new TimeOrderedCodeGenerator(0)
+        );
     }
 
     @Test
     void canGetAllAccounts() {
         accountService.getAllAccounts();
 
-        verify(accountRepository).findAll();
+        verify(accountRepository).findAllViews();
+    }
+
+    @Test
+    void canGetAccountsPageWithNextCursor() {
+        when(accountRepository.findViewsAfter(Integer.MIN_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(List.of(accountViewWithId(1), accountViewWithId(2), accountViewWithId(3)));
+
+        CursorPage<AccountView> page = accountService.getAccounts(null, 2);
+
+        assertThat(page.getItems()).extracting(AccountView::id).containsExactly(1, 2);
+
+        when(accountRepository.findViewsAfter(2, PageRequest.of(0, 3))).thenReturn(List.of(accountViewWithId(3)));
+
+        CursorPage<AccountView> nextPage = accountService.getAccounts(page.getNextCursor(), 2);
+
+        assertThat(nextPage.getItems()).extracting(AccountView::id).containsExactly(3);
+        assertThat(nextPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenAccountsCursorIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.getAccounts("not-a-cursor", 10));
+    }
+
+    @Test
+    void canStreamAccounts() {
+        when(accountRepository.streamAllViews())
+                .thenReturn(IntStream.rangeClosed(1, 1200).mapToObj(this::accountViewWithId));
+
+        List<AccountView> streamed = new ArrayList<>();
+        accountService.streamAccounts(streamed::add);
+
+        assertThat(streamed).extracting(AccountView::id).hasSize(1200).startsWith(1, 2);
     }
 
     @Test
@@ -56,7 +124,7 @@ class AccountServiceTest {
 
         Account account = new Account();
         account.setCode(code);
-        account.setBalance(0);
+        account.setBalance(Money.of(0));
 
         // When
         when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
@@ -67,23 +135,53 @@ class AccountServiceTest {
     }
 
     @Test
-    void canGetAllTransfersForNewAccount() {
-        String code = anyString();
+    void canGetAccountSummaryFromCache() {
+        String code = UUID.randomUUID().toString();
+        AccountSummary summary = new AccountSummary(1, code, null, Money.of(100), 0L, null, null);
 
-        Account account = new Account();
-        account.setId(1);
-        account.setCode(code);
-        account.setBalance(0);
+        when(accountCache.get(code)).thenReturn(Optional.of(summary));
 
-        when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
+        assertThat(accountService.getAccountSummary(code)).isEqualTo(summary);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void willThrowWhenAccountDoesNotExistOnGetAccountSummary() {
+        when(accountCache.get(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(AccountNotFoundException.class, () -> accountService.getAccountSummary(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void canGetAllTransfersForNewAccount() {
+        String code = UUID.randomUUID().toString();
 
-        Map<String, List<Transfer>> expectedTransfers = new HashMap<>();
+        when(accountCache.get(code)).thenReturn(Optional.of(new AccountSummary(1, code, null, Money.of(0), 0L, null, null)));
+
+        Map<String, List<TransferView>> expectedTransfers = new HashMap<>();
         expectedTransfers.put("sent", Collections.emptyList());
         expectedTransfers.put("received", Collections.emptyList());
 
         assertThat(accountService.getAllTransfers(code)).isEqualTo(expectedTransfers);
     }
 
+    @Test
+    void canReadSentAndReceivedTransfersOfAccountSeparately() {
+        String code = UUID.randomUUID().toString();
+        TransferView sent = new TransferView(1, "t1", code, "other", Money.of(10), null, null);
+        TransferView received = new TransferView(2, "t2", "other", code, Money.of(20), null, null);
+
+        when(accountCache.get(code)).thenReturn(Optional.of(new AccountSummary(1, code, null, Money.of(0), 0L, null, null)));
+        when(transferRepository.findSentTransfersOfAccount(1)).thenReturn(List.of(sent));
+        when(transferRepository.findReceivedTransfersOfAccount(1)).thenReturn(List.of(received));
+
+        Map<String, List<TransferView>> transfers = accountService.getAllTransfers(code);
+
+        assertThat(transfers.get("sent")).containsExactly(sent);
+        assertThat(transfers.get("received")).containsExactly(received);
+        verify(accountRepository, never()).findAccountByCode(anyString());
+    }
+
     @Test
     void canOpenNewAccountForCustomerWithExistingAccount() {
         String randomCode = UUID.randomUUID().toString();
@@ -107,7 +205,7 @@ class AccountServiceTest {
 
     @Test
     void canDepositValidAmountIntoAccount() {
-        double amountToDeposit = 1000;
+        Money amountToDeposit = Money.of(1000);
 
         DepositRequest depositRequest = new DepositRequest();
         depositRequest.setAmount(amountToDeposit);
@@ -116,13 +214,14 @@ class AccountServiceTest {
         Account account = new Account();
         account.setId(1);
         account.setCode(code);
-        account.setBalance(0);
+        account.setBalance(Money.of(0));
 
         when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
 
         accountService.deposit(code, depositRequest);
 
         assertThat(account.getBalance()).isEqualTo(amountToDeposit);
+        verify(accountCache).update(account);
     }
 
     @Test
@@ -130,16 +229,16 @@ class AccountServiceTest {
         String senderCode = UUID.randomUUID().toString();
         Account senderAccount = new Account();
         senderAccount.setCode(senderCode);
-        senderAccount.setBalance(1000);
+        senderAccount.setBalance(Money.of(1000));
 
         String receiverCode = UUID.randomUUID().toString();
         Account receiverAccount = new Account();
         receiverAccount.setCode(receiverCode);
-        receiverAccount.setBalance(0);
+        receiverAccount.setBalance(Money.of(0));
 
         TransferRequest transferRequest = new TransferRequest();
         transferRequest.setReceiverAccountCode(receiverCode);
-        transferRequest.setAmount(500);
+        transferRequest.setAmount(Money.of(500));
 
         when(accountRepository.findAccountByCode(anyString()))
                 .thenReturn(Optional.of(senderAccount))
@@ -150,13 +249,268 @@ class AccountServiceTest {
         ArgumentCaptor<Transfer> transferArgumentCaptor = ArgumentCaptor.forClass(Transfer.class);
         verify(transferRepository).save(transferArgumentCaptor.capture());
 
-        assertThat(senderAccount.getBalance()).isEqualTo(500);
-        assertThat(receiverAccount.getBalance()).isEqualTo(500);
+        assertThat(senderAccount.getBalance()).isEqualTo(Money.of(500));
+        assertThat(receiverAccount.getBalance()).isEqualTo(Money.of(500));
+        verify(accountCache).update(senderAccount);
+        verify(accountCache).update(receiverAccount);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void canTransferBatchWithOneQueryAndReportEachResult() {
+        String senderCode = UUID.randomUUID().toString();
+        Account senderAccount = new Account();
+        senderAccount.setCode(senderCode);
+        senderAccount.setBalance(Money.of(1000));
+
+        String receiverCode = UUID.randomUUID().toString();
+        Account receiverAccount = new Account();
+        receiverAccount.setCode(receiverCode);
+        receiverAccount.setBalance(Money.of(0));
+
+        TransferRequest first = new TransferRequest();
+        first.setReceiverAccountCode(receiverCode);
+        first.setAmount(Money.of(600));
+
+        TransferRequest unknownReceiver = new TransferRequest();
+        unknownReceiver.setReceiverAccountCode(UUID.randomUUID().toString());
+        unknownReceiver.setAmount(Money.of(100));
+
+        TransferRequest exceedingBalance = new TransferRequest();
+        exceedingBalance.setReceiverAccountCode(receiverCode);
+        exceedingBalance.setAmount(Money.of(600));
+
+        TransferRequest last = new TransferRequest();
+        last.setReceiverAccountCode(receiverCode);
+        last.setAmount(Money.of(400));
+
+        when(accountRepository.findAccountsByCodeIn(anyCollection()))
+                .thenReturn(List.of(senderAccount, receiverAccount));
+
+        List<TransferResult> results = accountService.transferBatch(
+                senderCode,
+                List.of(first, unknownReceiver, exceedingBalance, last)
+        );
+
+        assertThat(results.get(0).getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+        assertThat(results.get(1).getMessage()).isEqualTo("Receiver account not found");
+        assertThat(results.get(2).getMessage()).isEqualTo("Insufficient funds to make the transfer");
+        assertThat(results.get(3).getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+
+        ArgumentCaptor<List<Transfer>> transfersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transferRepository).saveAll(transfersCaptor.capture());
+        verify(accountRepository, never()).findAccountByCode(anyString());
+
+        assertThat(transfersCaptor.getValue().size()).isEqualTo(2);
+        assertThat(senderAccount.getBalance()).isEqualTo(Money.of(0));
+        assertThat(receiverAccount.getBalance()).isEqualTo(Money.of(1000));
+    }
+
+    @Test
+    void canReportEachResultOfLedgerTransferBatchWhenOneIsInDoubt() {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        accountService = new AccountService(accountRepository, transferRepository,
+                new TransactionRetrier(new TransactionTemplate(transactionManager), transferProperties, metricsRegistry),
+                transferProperties, Optional.of(ledgerEngine), accountCache, new TimeOrderedCodeGenerator(0));
+
+        TransferRequest first = new TransferRequest();
+        first.setReceiverAccountCode(UUID.randomUUID().toString());
+        first.setAmount(Money.of(100));
+
+        TransferRequest second = new TransferRequest();
+        second.setReceiverAccountCode(UUID.randomUUID().toString());
+        second.setAmount(Money.of(100));
+
+        String senderCode = UUID.randomUUID().toString();
+        when(ledgerEngine.transfer(eq(senderCode), eq(first), anyString())).thenReturn("first");
+        when(ledgerEngine.transfer(eq(senderCode), eq(second), anyString())).thenThrow(new LedgerTimeoutException());
+
+        List<TransferResult> results = accountService.transferBatch(senderCode, List.of(first, second));
+
+        assertThat(results.get(0).getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+        assertThat(results.get(0).getTransferCode()).isEqualTo("first");
+        assertThat(results.get(1).getStatus()).isEqualTo(TransferResult.Status.UNKNOWN);
+        assertThat(results.get(1).getTransferCode()).isNotNull();
+        assertThat(results.get(1).getMessage()).isEqualTo(new LedgerTimeoutException().getMessage());
+    }
+
+    @Test
+    void willThrowWhenSenderAccountDoesNotExistOnTransferBatch() {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(UUID.randomUUID().toString());
+        transferRequest.setAmount(Money.of(100));
+
+        when(accountRepository.findAccountsByCodeIn(anyCollection())).thenReturn(List.of());
+
+        AccountNotFoundException thrown = assertThrows(
+                AccountNotFoundException.class,
+                () -> accountService.transferBatch(UUID.randomUUID().toString(), List.of(transferRequest))
+        );
+
+        assertEquals("Sender account not found", thrown.getMessage());
+    }
+
+    @Test
+    void canTransferWithAccountsLockedInPessimisticMode() {
+        transferProperties.setMode(TransferProperties.Mode.PESSIMISTIC);
+
+        String senderCode = UUID.randomUUID().toString();
+        Account senderAccount = new Account();
+        senderAccount.setCode(senderCode);
+        senderAccount.setBalance(Money.of(1000));
+
+        String receiverCode = UUID.randomUUID().toString();
+        Account receiverAccount = new Account();
+        receiverAccount.setCode(receiverCode);
+        receiverAccount.setBalance(Money.of(0));
+
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(500));
+
+        when(accountRepository.findAccountsByCodeForUpdate(List.of(senderCode, receiverCode)))
+                .thenReturn(List.of(receiverAccount, senderAccount));
+
+        accountService.transfer(senderCode, transferRequest);
+
+        verify(accountRepository, never()).findAccountByCode(anyString());
+        assertThat(senderAccount.getBalance()).isEqualTo(Money.of(500));
+        assertThat(receiverAccount.getBalance()).isEqualTo(Money.of(500));
+    }
+
+    @Test
+    void canRetryTransferWhenAccountLockTimesOut() {
+        transferProperties.setMode(TransferProperties.Mode.PESSIMISTIC);
+        transferProperties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+
+        String senderCode = UUID.randomUUID().toString();
+        Account senderAccount = new Account();
+        senderAccount.setCode(senderCode);
+        senderAccount.setBalance(Money.of(1000));
+
+        String receiverCode = UUID.randomUUID().toString();
+        Account receiverAccount = new Account();
+        receiverAccount.setCode(receiverCode);
+        receiverAccount.setBalance(Money.of(0));
+
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(500));
+
+        when(accountRepository.findAccountsByCodeForUpdate(List.of(senderCode, receiverCode)))
+                .thenThrow(new CannotAcquireLockException("Lock timeout"))
+                .thenReturn(List.of(senderAccount, receiverAccount));
+
+        accountService.transfer(senderCode, transferRequest);
+
+        verify(transferRepository).save(any(Transfer.class));
+        assertThat(senderAccount.getBalance()).isEqualTo(Money.of(500));
+    }
+
+    @Test
+    void willThrowWhenAccountLockTimesOutOnEveryAttempt() {
+        transferProperties.setMode(TransferProperties.Mode.PESSIMISTIC);
+        transferProperties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(UUID.randomUUID().toString());
+        transferRequest.setAmount(Money.of(500));
+
+        when(accountRepository.findAccountsByCodeForUpdate(anyList()))
+                .thenThrow(new CannotAcquireLockException("Lock timeout"));
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> accountService.transfer(UUID.randomUUID().toString(), transferRequest));
+
+        verify(accountRepository, times(transferProperties.getRetry().getMaxAttempts()))
+                .findAccountsByCodeForUpdate(anyList());
+    }
+
+    @Test
+    void canCoalesceConcurrentDepositsIntoOneTransaction() throws InterruptedException {
+        // Far longer than the deposits released together take to join the batch the first one opens
+        transferProperties.getDepositCoalescing().setWindow(Duration.ofMillis(500));
+        accountService = new AccountService(accountRepository, transferRepository,
+                new TransactionRetrier(new TransactionTemplate(transactionManager), transferProperties, metricsRegistry),
+                transferProperties, Optional.empty(), accountCache, new TimeOrderedCodeGenerator(0));
+
+        DepositRequest depositRequest = new DepositRequest();
+        depositRequest.setAmount(Money.of(1000));
+
+        String code = UUID.randomUUID().toString();
+        Account account = new Account();
+        account.setCode(code);
+        account.setBalance(Money.of(0));
+
+        when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
+
+        int numberOfThreads = 20;
+        ExecutorService service = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch ready = new CountDownLatch(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(numberOfThreads);
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            service.execute(() -> {
+                ready.countDown();
+
+                try {
+                    start.await();
+                    accountService.deposit(code, depositRequest);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        // Every deposit is released at once, well within the window of the first
+        ready.await();
+        start.countDown();
+        latch.await();
+        service.shutdown();
+
+        assertThat(account.getBalance()).isEqualTo(Money.of(1000L * numberOfThreads));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void canRetryDepositWhenAccountVersionConflicts() {
+        transferProperties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+
+        DepositRequest depositRequest = new DepositRequest();
+        depositRequest.setAmount(Money.of(1000));
+
+        String code = UUID.randomUUID().toString();
+        Account staleAccount = new Account();
+        staleAccount.setCode(code);
+        staleAccount.setBalance(Money.of(0));
+
+        Account currentAccount = new Account();
+        currentAccount.setCode(code);
+        currentAccount.setBalance(Money.of(500));
+
+        when(accountRepository.findAccountByCode(code))
+                .thenReturn(Optional.of(staleAccount))
+                .thenReturn(Optional.of(currentAccount));
+        doThrow(new ObjectOptimisticLockingFailureException(Account.class, 1))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        Account account = accountService.deposit(code, depositRequest);
+
+        assertThat(account).isSameAs(currentAccount);
+        assertThat(account.getBalance()).isEqualTo(Money.of(1500));
+        assertThat(metricsRegistry.counter("minibank_transaction_conflicts_total", "type", "optimistic").count())
+                .isEqualTo(1);
+        assertThat(metricsRegistry.counter("minibank_transaction_retries_total", "type", "optimistic").count())
+                .isEqualTo(1);
     }
 
     @Test
     void canHandleMultipleDepositsConcurrently() throws InterruptedException {
-        double amountToDeposit = 1000;
+        Money amountToDeposit = Money.of(1000);
 
         DepositRequest depositRequest = new DepositRequest();
         depositRequest.setAmount(amountToDeposit);
@@ -165,7 +519,7 @@ class AccountServiceTest {
         Account account = new Account();
         account.setId(1);
         account.setCode(code);
-        account.setBalance(0);
+        account.setBalance(Money.of(0));
 
         when(accountRepository.findAccountByCode(code)).thenReturn(Optional.of(account));
 
@@ -180,7 +534,7 @@ class AccountServiceTest {
         }
 
         latch.await();
-        assertThat(account.getBalance()).isEqualTo(amountToDeposit * numberOfThreads);
+        assertThat(account.getBalance()).isEqualTo(Money.ofMinorUnits(amountToDeposit.minorUnits() * numberOfThreads));
     }
 
     @Test
@@ -188,16 +542,16 @@ class AccountServiceTest {
         String senderCode = UUID.randomUUID().toString();
         Account senderAccount = new Account();
         senderAccount.setCode(senderCode);
-        senderAccount.setBalance(1000);
+        senderAccount.setBalance(Money.of(1000));
 
         String receiverCode = UUID.randomUUID().toString();
         Account receiverAccount = new Account();
         receiverAccount.setCode(receiverCode);
-        receiverAccount.setBalance(0);
+        receiverAccount.setBalance(Money.of(0));
 
         TransferRequest transferRequest = new TransferRequest();
         transferRequest.setReceiverAccountCode(receiverCode);
-        transferRequest.setAmount(2);
+        transferRequest.setAmount(Money.of(2));
 
         when(accountRepository.findAccountByCode(senderCode)).thenReturn(Optional.of(senderAccount));
         when(accountRepository.findAccountByCode(receiverCode)).thenReturn(Optional.of(receiverAccount));
@@ -215,10 +569,10 @@ class AccountServiceTest {
         latch.await();
 
         assertThat(senderAccount.getBalance())
-                .isEqualTo(1000 - (numberOfThreads * transferRequest.getAmount()));
+                .isEqualTo(Money.of(1000).minus(multiply(transferRequest.getAmount(), numberOfThreads)));
 
         assertThat(receiverAccount.getBalance())
-                .isEqualTo(0 + (numberOfThreads * transferRequest.getAmount()));
+                .isEqualTo(multiply(transferRequest.getAmount(), numberOfThreads));
     }
 
     @Test
@@ -226,21 +580,21 @@ class AccountServiceTest {
         String senderCode1 = UUID.randomUUID().toString();
         Account senderAccount1 = new Account();
         senderAccount1.setCode(senderCode1);
-        senderAccount1.setBalance(1000);
+        senderAccount1.setBalance(Money.of(1000));
 
         String senderCode2 = UUID.randomUUID().toString();
         Account senderAccount2 = new Account();
         senderAccount2.setCode(senderCode2);
-        senderAccount2.setBalance(1000);
+        senderAccount2.setBalance(Money.of(1000));
 
         String receiverCode = UUID.randomUUID().toString();
         Account receiverAccount = new Account();
         receiverAccount.setCode(receiverCode);
-        receiverAccount.setBalance(0);
+        receiverAccount.setBalance(Money.of(0));
 
         TransferRequest transferRequest = new TransferRequest();
         transferRequest.setReceiverAccountCode(receiverCode);
-        transferRequest.setAmount(2);
+        transferRequest.setAmount(Money.of(2));
 
         when(accountRepository.findAccountByCode(senderCode1)).thenReturn(Optional.of(senderAccount1));
         when(accountRepository.findAccountByCode(senderCode2)).thenReturn(Optional.of(senderAccount2));
@@ -267,13 +621,13 @@ class AccountServiceTest {
         latch2.await();
 
         assertThat(senderAccount1.getBalance())
-                .isEqualTo(1000 - (numberOfThreads * transferRequest.getAmount()));
+                .isEqualTo(Money.of(1000).minus(multiply(transferRequest.getAmount(), numberOfThreads)));
 
         assertThat(senderAccount1.getBalance())
-                .isEqualTo(1000 - (numberOfThreads * transferRequest.getAmount()));
+                .isEqualTo(Money.of(1000).minus(multiply(transferRequest.getAmount(), numberOfThreads)));
 
         assertThat(receiverAccount.getBalance())
-                .isEqualTo(2 * (numberOfThreads * transferRequest.getAmount()));
+                .isEqualTo(multiply(transferRequest.getAmount(), 2 * numberOfThreads));
     }
 
     @Test
@@ -285,9 +639,9 @@ class AccountServiceTest {
 
     @Test
     void willThrowWhenAccountDoesNotExistOnGetAllTransfers() {
-        when(accountRepository.findAccountByCode(anyString())).thenReturn(Optional.empty());
+        when(accountCache.get(anyString())).thenReturn(Optional.empty());
 
-        assertThrows(AccountNotFoundException.class, () -> accountService.getAllTransfers(anyString()));
+        assertThrows(AccountNotFoundException.class, () -> accountService.getAllTransfers(UUID.randomUUID().toString()));
     }
 
     @Test
@@ -314,7 +668,7 @@ class AccountServiceTest {
     @Test
     void willThrowWhenAccountDoesNotExistOnDeposit() {
         DepositRequest depositRequest = new DepositRequest();
-        depositRequest.setAmount(1000);
+        depositRequest.setAmount(Money.of(1000));
 
         when(accountRepository.findAccountByCode(anyString())).thenReturn(Optional.empty());
 
@@ -323,7 +677,7 @@ class AccountServiceTest {
 
     @Test
     void willThrowWhenDepositAmountIsMoreThanAllowed() {
-        double amountToDeposit = 100_000_000;
+        Money amountToDeposit = Money.of(100_000_000);
 
         DepositRequest depositRequest = new DepositRequest();
         depositRequest.setAmount(amountToDeposit);
@@ -338,7 +692,7 @@ class AccountServiceTest {
 
     @Test
     void willThrowWhenDepositAmountIsLessThanAllowed() {
-        double amountToDeposit = -10;
+        Money amountToDeposit = Money.of(-10);
 
         DepositRequest depositRequest = new DepositRequest();
         depositRequest.setAmount(amountToDeposit);
@@ -354,7 +708,7 @@ class AccountServiceTest {
     @Test
     void willThrowWhenSenderAccountDoesNotExistOnTransfer() {
         TransferRequest transferRequest = new TransferRequest();
-        transferRequest.setAmount(1000);
+        transferRequest.setAmount(Money.of(1000));
 
         when(accountRepository.findAccountByCode(anyString())).thenReturn(Optional.empty());
 
@@ -369,7 +723,7 @@ class AccountServiceTest {
     @Test
     void willThrowWhenReceiverAccountDoesNotExistOnTransfer() {
         TransferRequest transferRequest = new TransferRequest();
-        transferRequest.setAmount(1000);
+        transferRequest.setAmount(Money.of(1000));
 
         Account account = new Account();
 
@@ -390,16 +744,16 @@ class AccountServiceTest {
         String senderCode = UUID.randomUUID().toString();
         Account senderAccount = new Account();
         senderAccount.setCode(senderCode);
-        senderAccount.setBalance(1000);
+        senderAccount.setBalance(Money.of(1000));
 
         String receiverCode = UUID.randomUUID().toString();
         Account receiverAccount = new Account();
         receiverAccount.setCode(receiverCode);
-        receiverAccount.setBalance(0);
+        receiverAccount.setBalance(Money.of(0));
 
         TransferRequest transferRequest = new TransferRequest();
         transferRequest.setReceiverAccountCode(receiverCode);
-        transferRequest.setAmount(2000);
+        transferRequest.setAmount(Money.of(2000));
 
         when(accountRepository.findAccountByCode(anyString()))
                 .thenReturn(Optional.of(senderAccount))
@@ -418,16 +772,16 @@ class AccountServiceTest {
         String senderCode = UUID.randomUUID().toString();
         Account senderAccount = new Account();
         senderAccount.setCode(senderCode);
-        senderAccount.setBalance(1000);
+        senderAccount.setBalance(Money.of(1000));
 
         String receiverCode = UUID.randomUUID().toString();
         Account receiverAccount = new Account();
         receiverAccount.setCode(receiverCode);
-        receiverAccount.setBalance(0);
+        receiverAccount.setBalance(Money.of(0));
 
         TransferRequest transferRequest = new TransferRequest();
         transferRequest.setReceiverAccountCode(receiverCode);
-        transferRequest.setAmount(-10);
+        transferRequest.setAmount(Money.of(-10));
 
         when(accountRepository.findAccountByCode(anyString()))
                 .thenReturn(Optional.of(senderAccount))
@@ -440,4 +794,12 @@ class AccountServiceTest {
 
         assertEquals("Transfer amount cannot be less than 1", thrown.getMessage());
     }
-}
\ No newline at end of file
+
+    private AccountView accountViewWithId(Integer id) {
+        return new AccountView(id, UUID.randomUUID().toString(), Money.of(0), null, null, null);
+    }
+
+    private Money multiply(Money amount, int times) {
+        return Money.ofMinorUnits(amount.minorUnits() * times);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.EmailIndex;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import com.example.minibank.config.CustomerImportProperties;
+import com.example.minibank.config.EmailIndexProperties;
+import com.example.minibank.controller.response.CustomerImportResult;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerImportServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+    @Mock
+    private AccountService accountService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private EntityManager entityManager;
+    private final CustomerImportProperties customerImportProperties = new CustomerImportProperties();
+    private CustomerImportService customerImportService;
+
+    private String adultDateOfBirth;
+
+    @BeforeEach
+    void setUp() {
+        customerImportProperties.setChunkSize(3);
+        customerImportProperties.setParallelism(2);
+        customerImportService = new CustomerImportService(customerRepository, accountService,
+                new EmailIndex(customerRepository, new EmailIndexProperties(), new MetricsRegistry()),
+                new TimeOrderedCodeGenerator(0), Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().findAndRegisterModules(), transactionTemplate, entityManager,
+                customerImportProperties, new MetricsRegistry());
+        adultDateOfBirth = LocalDate.now().minusYears(CustomerService.CUSTOMER_MIN_AGE_REQUIRED + 1).toString();
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerImportService.shutdown();
+    }
+
+    @Test
+    void canImportValidRecordsAndReportInvalidOnes() throws IOException {
+        String ndjson = String.join("\n",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Bob", "not-an-email", adultDateOfBirth),
+                customerJson("Carl", "carl@gmail.com", LocalDate.now().minusYears(10).toString()),
+                "",
+                "{\"name\": \"Dan\",",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Eve", "eve@gmail.com", adultDateOfBirth));
+
+        List<List<CustomerImportResult>> chunks = importCustomers(ndjson, CustomerImportService.Format.NDJSON, false);
+
+        assertThat(chunks).hasSize(2);
+        List<CustomerImportResult> results = chunks.stream().flatMap(List::stream).toList();
+        assertThat(results).extracting(CustomerImportResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(results).extracting(CustomerImportResult::getStatus).containsExactly(
+                CustomerImportResult.Status.IMPORTED,
+                CustomerImportResult.Status.FAILED,
+                CustomerImportResult.Status.FAILED,
+                CustomerImportResult.Status.FAILED,
+                CustomerImportResult.Status.IMPORTED,
+                CustomerImportResult.Status.IMPORTED);
+        assertThat(results.get(1).getMessage()).isEqualTo("Email is invalid");
+        assertThat(results.get(2).getMessage()).isEqualTo("Customer age must be above " + CustomerService.CUSTOMER_MIN_AGE_REQUIRED);
+        assertThat(results.get(3).getMessage()).startsWith("Malformed record");
+        assertThat(results.get(0).getCustomerCode()).isNotNull();
+        assertThat(results.get(0).getAccountCode()).isNull();
+
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void canImportCsvAndOpenAccounts() throws IOException {
+        String csv = String.join("\n",
+                "email,date_of_birth,name",
+                "alex@gmail.com," + adultDateOfBirth + ",\"Smith, Alex\"",
+                "bob@gmail.com," + adultDateOfBirth + ",\"Bob \"\"The Builder\"\"\"");
+        when(accountService.openAccountsForNewCustomers(anyList())).thenAnswer(invocation -> {
+            List<Account> accounts = new ArrayList<>();
+
+            for (Customer customer : invocation.<List<Customer>>getArgument(0)) {
+                Account account = new Account();
+                account.setCode("account-" + customer.getEmail());
+                accounts.add(account);
+            }
+
+            return accounts;
+        });
+
+        List<CustomerImportResult> results = importCustomers(csv, CustomerImportService.Format.CSV, true).get(0);
+
+        assertThat(results).extracting(CustomerImportResult::getAccountCode)
+                .containsExactly("account-alex@gmail.com", "account-bob@gmail.com");
+
+        ArgumentCaptor<List<Customer>> customers = ArgumentCaptor.forClass(List.class);
+        verify(customerRepository).saveAll(customers.capture());
+        assertThat(customers.getValue()).extracting(Customer::getName).containsExactly("Smith, Alex", "Bob \"The Builder\"");
+    }
+
+    @Test
+    void willRejectEmailsTakenByExistingCustomersWithOneQueryPerChunk() throws IOException {
+        String ndjson = String.join("\n",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Bob", "bob@gmail.com", adultDateOfBirth),
+                customerJson("Carl", "carl@gmail.com", adultDateOfBirth));
+        when(customerRepository.findEmailsIn(anyCollection())).thenReturn(List.of("bob@gmail.com"));
+
+        List<CustomerImportResult> results = importCustomers(ndjson, CustomerImportService.Format.NDJSON, false).get(0);
+
+        assertThat(results).extracting(CustomerImportResult::getMessage)
+                .containsExactly(null, CustomerImportService.EMAIL_TAKEN, null);
+        verify(customerRepository, times(1)).findEmailsIn(anyCollection());
+        verify(customerRepository, never()).findCustomerByEmailWithExcludeList(anyString(), anyList());
+    }
+
+    @Test
+    void canFallBackToSingleInsertsWhenEmailIsTakenDuringImport() throws IOException {
+        String ndjson = String.join("\n",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Bob", "bob@gmail.com", adultDateOfBirth));
+        when(customerRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+
+            if (customers.stream().anyMatch(customer -> customer.getEmail().equals("bob@gmail.com"))) {
+                throw new DataIntegrityViolationException("uk_customers_email");
+            }
+
+            return customers;
+        });
+
+        List<CustomerImportResult> results = importCustomers(ndjson, CustomerImportService.Format.NDJSON, false).get(0);
+
+        assertThat(results).extracting(CustomerImportResult::getStatus)
+                .containsExactly(CustomerImportResult.Status.IMPORTED, CustomerImportResult.Status.FAILED);
+        assertThat(results.get(1).getMessage()).isEqualTo(CustomerImportService.EMAIL_TAKEN);
+        verify(customerRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void willRejectEmailsDifferingOnlyInCaseWithinChunk() throws IOException {
+        String ndjson = String.join("\n",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Alex", "Alex@Gmail.com", adultDateOfBirth));
+
+        List<CustomerImportResult> results = importCustomers(ndjson, CustomerImportService.Format.NDJSON, false).get(0);
+
+        assertThat(results).extracting(CustomerImportResult::getMessage)
+                .containsExactly(null, CustomerImportService.DUPLICATE_EMAIL);
+    }
+
+    @Test
+    void willNotReportOtherConstraintViolationsAsTakenEmail() throws IOException {
+        String ndjson = String.join("\n",
+                customerJson("Alex", "alex@gmail.com", adultDateOfBirth),
+                customerJson("Bob", "bob@gmail.com", adultDateOfBirth));
+        when(customerRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+
+            if (customers.stream().anyMatch(customer -> customer.getEmail().equals("bob@gmail.com"))) {
+                throw new DataIntegrityViolationException("uk_customers_code");
+            }
+
+            return customers;
+        });
+
+        List<CustomerImportResult> results = importCustomers(ndjson, CustomerImportService.Format.NDJSON, false).get(0);
+
+        assertThat(results).extracting(CustomerImportResult::getMessage)
+                .containsExactly(null, CustomerImportService.NOT_STORED);
+    }
+
+    @Test
+    void willRejectCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importCustomers("name,email\nAlex,alex@gmail.com", CustomerImportService.Format.CSV, false));
+        verifyNoInteractions(customerRepository);
+    }
+
+    private List<List<CustomerImportResult>> importCustomers(String body, CustomerImportService.Format format,
+                                                             boolean openAccounts) throws IOException {
+        List<List<CustomerImportResult>> chunks = new ArrayList<>();
+        customerImportService.importCustomers(new BufferedReader(new StringReader(body)), format, openAccounts, chunks::add);
+
+        return chunks;
+    }
+
+    private static String customerJson(String name, String email, String dateOfBirth) {
+        return "{\"name\": \"" + name + "\", \"email\": \"" + email + "\", \"dateOfBirth\": \"" + dateOfBirth + "\"}";
+    }
+}
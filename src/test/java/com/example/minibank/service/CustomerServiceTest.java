@@ -1,8 +1,15 @@
 package com.example.minibank.service;
 
+import com.example.minibank.cache.EmailIndex;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import com.example.minibank.config.EmailIndexProperties;
+import com.example.minibank.controller.response.CursorPage;
 import com.example.minibank.exception.CustomerIneligibleException;
 import com.example.minibank.exception.CustomerNotFoundException;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Account;
 import com.example.minibank.model.Customer;
+import com.example.minibank.model.view.CustomerView;
 import com.example.minibank.repository.CustomerRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +17,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import java.time.LocalDate;
@@ -17,9 +26,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,13 +41,16 @@ class CustomerServiceTest {
 
     @Mock private CustomerRepository customerRepository;
     @Mock private AccountService accountService;
+    private EmailIndex emailIndex;
     private CustomerService customerService;
 
     private int minimumRequiredDateOfBirthYear;
 
     @BeforeEach
     void setUp() {
-        customerService = new CustomerService(customerRepository, accountService);
+        emailIndex = new EmailIndex(customerRepository, new EmailIndexProperties(), new MetricsRegistry());
+        customerService = new CustomerService(customerRepository, accountService, new TimeOrderedCodeGenerator(0),
+                emailIndex);
         minimumRequiredDateOfBirthYear = (LocalDate.now().getYear() - CustomerService.CUSTOMER_MIN_AGE_REQUIRED);
     }
 
@@ -43,7 +60,25 @@ class CustomerServiceTest {
         customerService.getAllCustomers();
 
         // Then
-        verify(customerRepository).findAll();
+        verify(customerRepository).findAllViews();
+    }
+
+    @Test
+    void canGetCustomersPageWithNextCursor() {
+        // Given
+        when(customerRepository.findViewsAfter(Integer.MIN_VALUE, PageRequest.of(0, 2)))
+                .thenReturn(List.of(customerViewWithId(1), customerViewWithId(2)));
+        when(customerRepository.findViewsAfter(1, PageRequest.of(0, 2)))
+                .thenReturn(List.of(customerViewWithId(2)));
+
+        // When
+        CursorPage<CustomerView> page = customerService.getCustomers(null, 1);
+        CursorPage<CustomerView> nextPage = customerService.getCustomers(page.getNextCursor(), 1);
+
+        // Then
+        assertThat(page.getItems()).extracting(CustomerView::id).containsExactly(1);
+        assertThat(nextPage.getItems()).extracting(CustomerView::id).containsExactly(2);
+        assertThat(nextPage.getNextCursor()).isNull();
     }
 
     @Test
@@ -51,18 +86,16 @@ class CustomerServiceTest {
         // Given
         String code = UUID.randomUUID().toString();
 
-        Customer customer = new Customer();
-        customer.setCode(code);
-        customer.setEmail("alex@gmail.com");
-        customer.setName("Alex");
-        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+        CustomerView customer = new CustomerView(1, code, "Alex", "alex@gmail.com",
+                LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1), null, null);
 
         // When
-        when(customerRepository.findCustomerByCode(code)).thenReturn(Optional.of(customer));
-        customerService.getCustomer(code);
+        when(customerRepository.findViewByCode(code)).thenReturn(Optional.of(customer));
+        CustomerView found = customerService.getCustomer(code);
 
         // Then
-        verify(customerRepository).findCustomerByCode(code);
+        assertThat(found).isEqualTo(customer);
+        verify(customerRepository, never()).findCustomerByCode(code);
     }
 
     @Test
@@ -74,13 +107,15 @@ class CustomerServiceTest {
         customer.setName("Alex");
         customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
 
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
+
         // When
         customerService.createCustomer(customer);
 
         // Then
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
 
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerRepository).saveAndFlush(customerArgumentCaptor.capture());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
@@ -107,11 +142,31 @@ class CustomerServiceTest {
         customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
 
         when(customerRepository.findCustomerByCode(code)).thenReturn(Optional.of(customer));
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
         Customer updatedCustomer = customerService.updateCustomer(code, customer);
 
         assertThat(updatedCustomer.getName()).isEqualTo(name);
     }
 
+    @Test
+    void willReportTakenEmailRejectedByDatabaseOnCustomerUpdate() {
+        when(customerRepository.streamAllEmails()).thenReturn(Stream.empty());
+        emailIndex.load();
+        String code = UUID.randomUUID().toString();
+
+        Customer customer = new Customer();
+        customer.setEmail("alex@gmail.com");
+        customer.setName("Alex");
+        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+
+        when(customerRepository.findCustomerByCode(code)).thenReturn(Optional.of(customer));
+        when(customerRepository.saveAndFlush(customer)).thenThrow(new DataIntegrityViolationException("uk_customers_email"));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> customerService.updateCustomer(code, customer));
+        assertThat(ex.getMessage()).isEqualTo("Customer email is already taken");
+        assertThat(emailIndex.mightBeTaken("alex@gmail.com")).isFalse();
+    }
+
     @Test
     void canOpenNewAccountForExistingCustomer() {
         String code = UUID.randomUUID().toString();
@@ -157,6 +212,91 @@ class CustomerServiceTest {
         // TODO: Check exception message
     }
 
+    @Test
+    void canSkipEmailQueryWhenIndexRulesOutTakenEmail() {
+        when(customerRepository.streamAllEmails()).thenReturn(Stream.of("Bob@gmail.com"));
+        emailIndex.load();
+
+        Customer alex = new Customer();
+        alex.setEmail("alex@gmail.com");
+        alex.setName("Alex");
+        alex.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+        when(customerRepository.saveAndFlush(alex)).thenReturn(alex);
+
+        Customer bob = new Customer();
+        bob.setEmail("bob@gmail.com");
+        bob.setName("Bob");
+        bob.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+        when(customerRepository.findCustomerByEmailWithExcludeList("bob@gmail.com", List.of(""))).thenReturn(Optional.of(bob));
+
+        customerService.createCustomer(alex);
+
+        verify(customerRepository, never()).findCustomerByEmailWithExcludeList(eq("alex@gmail.com"), anyList());
+        assertThrows(RuntimeException.class, () -> customerService.createCustomer(bob));
+        assertThat(emailIndex.mightBeTaken("alex@gmail.com")).isTrue();
+    }
+
+    @Test
+    void willReportTakenEmailRejectedByDatabaseOnCustomerCreate() {
+        Customer customer = new Customer();
+        customer.setEmail("alex@gmail.com");
+        customer.setName("Alex");
+        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+
+        when(customerRepository.saveAndFlush(customer)).thenThrow(new DataIntegrityViolationException("uk_customers_email"));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> customerService.createCustomer(customer));
+        assertThat(ex.getMessage()).isEqualTo("Customer email is already taken");
+    }
+
+    @Test
+    void willNotReportOtherConstraintViolationsAsTakenEmailOnCustomerCreate() {
+        Customer customer = new Customer();
+        customer.setEmail("alex@gmail.com");
+        customer.setName("Alex");
+        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("uk_customers_code");
+        when(customerRepository.saveAndFlush(customer)).thenThrow(violation);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> customerService.createCustomer(customer));
+        assertThat(ex).isSameAs(violation);
+    }
+
+    @Test
+    void canCreateCustomerWithAccountInOneFlush() {
+        Customer customer = new Customer();
+        customer.setEmail("alex@gmail.com");
+        customer.setName("Alex");
+        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+
+        Account account = new Account();
+        account.setCustomer(customer);
+        when(accountService.openAccountsForNewCustomers(List.of(customer))).thenReturn(List.of(account));
+
+        Account newAccount = customerService.createCustomerWithAccount(customer);
+
+        assertThat(newAccount.getCustomer().getCode()).isNotNull();
+        verify(customerRepository).save(customer);
+        verify(customerRepository).flush();
+        verify(customerRepository, never()).findCustomerByCode(anyString());
+        verify(accountService, never()).openNewAccountForCustomer(any());
+    }
+
+    @Test
+    void willReportTakenEmailRejectedByDatabaseOnCustomerCreateWithAccount() {
+        Customer customer = new Customer();
+        customer.setEmail("alex@gmail.com");
+        customer.setName("Alex");
+        customer.setDateOfBirth(LocalDate.of(minimumRequiredDateOfBirthYear, 1, 1));
+
+        when(accountService.openAccountsForNewCustomers(List.of(customer))).thenReturn(List.of(new Account()));
+        doThrow(new DataIntegrityViolationException("uk_customers_email")).when(customerRepository).flush();
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> customerService.createCustomerWithAccount(customer));
+        assertThat(ex.getMessage()).isEqualTo("Customer email is already taken");
+    }
+
     @Test
     void willThrowWhenCustomerAgeIsLessThanRequiredOnCustomerCreate() {
         Customer customer = new Customer();
@@ -209,4 +349,8 @@ class CustomerServiceTest {
         assertThrows(CustomerNotFoundException.class, () -> customerService.openNewAccount(code));
     }
 
-}
\ No newline at end of file
+
+    private CustomerView customerViewWithId(Integer id) {
+        return new CustomerView(id, UUID.randomUUID().toString(), null, null, null, null, null);
+    }
+}
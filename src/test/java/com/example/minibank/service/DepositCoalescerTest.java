@@ -0,0 +1,83 @@
+package com.example.minibank.service;
+
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DepositCoalescerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(20);
+    private final Map<String, Long> balances = new ConcurrentHashMap<>();
+    private final AtomicInteger batches = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void canApplyConcurrentDepositsIntoSameAccountTogether() throws Exception {
+        DepositCoalescer coalescer = new DepositCoalescer(Duration.ofMillis(200), this::apply);
+
+        depositConcurrently(coalescer, List.of("A"), 20);
+
+        assertThat(balances).containsEntry("A", Money.of(20).minorUnits());
+        assertThat(batches.get()).isLessThan(20);
+    }
+
+    @Test
+    void canApplyDepositsIntoDifferentAccountsSeparately() throws Exception {
+        DepositCoalescer coalescer = new DepositCoalescer(Duration.ofMillis(200), this::apply);
+
+        depositConcurrently(coalescer, List.of("A", "B"), 20);
+
+        assertThat(balances).containsEntry("A", Money.of(10).minorUnits()).containsEntry("B", Money.of(10).minorUnits());
+        assertThat(batches.get()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void willFailEveryDepositOfFailedBatch() {
+        DepositCoalescer coalescer = new DepositCoalescer(Duration.ofMillis(1), (code, total) -> {
+            throw new AccountNotFoundException();
+        });
+
+        assertThrows(AccountNotFoundException.class, () -> coalescer.deposit("A", Money.of(1)));
+    }
+
+    private void depositConcurrently(DepositCoalescer coalescer, List<String> codes, int deposits) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (int i = 0; i < deposits; i++) {
+            String code = codes.get(i % codes.size());
+
+            results.add(executor.submit(() -> {
+                start.await();
+                coalescer.deposit(code, Money.of(1));
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void apply(String code, Money total) {
+        batches.incrementAndGet();
+        balances.merge(code, total.minorUnits(), Long::sum);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.minibank.service;
+
+import com.example.minibank.controller.request.DepositRequest;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.model.Account;
+import com.example.minibank.model.Customer;
+import com.example.minibank.model.Money;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In ledger mode transfers reach the database after they are acknowledged, so a summary read in
+ * between must not stay cached once the transfer is committed.
+ */
+@SpringBootTest(properties = {
+        "minibank.transfer.mode=ledger",
+        "minibank.ledger.shards=2"
+})
+class LedgerTransferCacheTest {
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountService accountService;
+
+    @Test
+    void canReadNewBalancesAfterTransferIsPersisted() {
+        Account sender = customerService.createCustomerWithAccount(customer());
+        Account receiver = customerService.createCustomerWithAccount(customer());
+        accountService.deposit(sender.getCode(), depositRequest(1000));
+
+        assertThat(accountService.getAccountSummary(sender.getCode()).balance()).isEqualTo(Money.of(1000));
+
+        accountService.transfer(sender.getCode(), transferRequest(receiver.getCode(), 400));
+        // May read the balance from before the transfer, and cache it
+        accountService.getAccountSummary(sender.getCode());
+
+        // Deposits wait until they are persisted, which is after the transfer queued before them
+        accountService.deposit(receiver.getCode(), depositRequest(1));
+
+        assertThat(accountService.getAccountSummary(sender.getCode()).balance()).isEqualTo(Money.of(600));
+        assertThat(accountService.getAccountSummary(receiver.getCode()).balance()).isEqualTo(Money.of(401));
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        customer.setName("Alex");
+        customer.setEmail(UUID.randomUUID() + "@gmail.com");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+        return customer;
+    }
+
+    private static DepositRequest depositRequest(long amount) {
+        DepositRequest depositRequest = new DepositRequest();
+        depositRequest.setAmount(Money.of(amount));
+
+        return depositRequest;
+    }
+
+    private static TransferRequest transferRequest(String receiverCode, long amount) {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(amount));
+
+        return transferRequest;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.controller.response.CursorPage;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.TransferDirection;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.model.view.TransferView;
+import com.example.minibank.repository.TransferRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+
+    @Mock
+    private AccountCache accountCache;
+    @Mock
+    private TransferRepository transferRepository;
+    private TransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        transferService = new TransferService(accountCache, transferRepository);
+    }
+
+    @Test
+    void canGetFirstPageOfTransferHistoryWithNextCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2022, 9, 1, 12, 0);
+        TransferHistoryFilter filter = new TransferHistoryFilter(1, TransferDirection.SENT, createdAt.minusDays(1), createdAt);
+
+        when(transferRepository.findSentTransferHistory(1, filter.from(), createdAt, Integer.MIN_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(List.of(transfer(30, createdAt), transfer(20, createdAt), transfer(10, createdAt)));
+
+        CursorPage<TransferView> page = transferService.getTransferHistory(filter, null, 2);
+
+        assertThat(page.getItems()).extracting(TransferView::id).containsExactly(30, 20);
+        assertThat(page.getNextCursor()).isNotNull();
+        verify(transferRepository, never()).findReceivedTransferHistory(anyInt(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void canMergeSentAndReceivedTransfersIntoOnePage() {
+        LocalDateTime createdAt = LocalDateTime.of(2022, 9, 1, 12, 0);
+        TransferHistoryFilter filter = new TransferHistoryFilter(1, TransferDirection.ALL, createdAt.minusDays(1), createdAt.plusDays(1));
+
+        when(transferRepository.findSentTransferHistory(1, filter.from(), filter.to(), Integer.MIN_VALUE, PageRequest.of(0, 4)))
+                .thenReturn(List.of(transfer(50, createdAt), transfer(30, createdAt), transfer(10, createdAt.minusHours(1))));
+        when(transferRepository.findReceivedTransferHistory(1, filter.from(), filter.to(), Integer.MIN_VALUE, PageRequest.of(0, 4)))
+                .thenReturn(List.of(transfer(40, createdAt), transfer(30, createdAt), transfer(20, createdAt.minusMinutes(1))));
+
+        CursorPage<TransferView> page = transferService.getTransferHistory(filter, null, 3);
+
+        // 30 was sent to the account itself, so it is in both directions
+        assertThat(page.getItems()).extracting(TransferView::id).containsExactly(50, 40, 30);
+        assertThat(page.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void canStreamSentAndReceivedTransfersNewestFirst() {
+        LocalDateTime createdAt = LocalDateTime.of(2022, 9, 1, 12, 0);
+        TransferHistoryFilter filter = new TransferHistoryFilter(1, TransferDirection.ALL, createdAt.minusDays(1), createdAt.plusDays(1));
+
+        when(transferRepository.streamSentTransferHistory(1, filter.from(), filter.to()))
+                .thenReturn(Stream.of(transfer(30, createdAt), transfer(10, createdAt.minusHours(1))));
+        when(transferRepository.streamReceivedTransferHistory(1, filter.from(), filter.to()))
+                .thenReturn(Stream.of(transfer(20, createdAt), transfer(40, createdAt.minusMinutes(1))));
+
+        List<TransferView> streamed = new ArrayList<>();
+        transferService.streamTransferHistory(filter, streamed::add);
+
+        assertThat(streamed).extracting(TransferView::id).containsExactly(30, 20, 40, 10);
+    }
+
+    @Test
+    void canGetNextPageOfTransferHistoryFromCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2022, 9, 1, 12, 0);
+        TransferHistoryFilter filter = new TransferHistoryFilter(1, TransferDirection.ALL, createdAt.minusDays(1), createdAt.plusDays(1));
+
+        when(transferRepository.findSentTransferHistory(anyInt(), any(), any(), anyInt(), any()))
+                .thenReturn(List.of(transfer(30, createdAt), transfer(20, createdAt), transfer(10, createdAt)));
+        when(transferRepository.findReceivedTransferHistory(anyInt(), any(), any(), anyInt(), any()))
+                .thenReturn(List.of());
+
+        String cursor = transferService.getTransferHistory(filter, null, 2).getNextCursor();
+
+        when(transferRepository.findSentTransferHistory(1, filter.from(), createdAt, 20, PageRequest.of(0, 3)))
+                .thenReturn(List.of(transfer(10, createdAt)));
+
+        CursorPage<TransferView> page = transferService.getTransferHistory(filter, cursor, 2);
+
+        assertThat(page.getItems()).extracting(TransferView::id).containsExactly(10);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void canCreateHistoryFilterWithDefaults() {
+        String code = UUID.randomUUID().toString();
+
+        when(accountCache.get(code)).thenReturn(Optional.of(new AccountSummary(1, code, null, Money.ZERO, 0L, null, null)));
+
+        TransferHistoryFilter filter = transferService.historyFilter(code, null, null, null);
+
+        assertThat(filter.accountId()).isEqualTo(1);
+        assertThat(filter.direction()).isEqualTo(TransferDirection.ALL);
+        assertThat(filter.from()).isBefore(filter.to());
+    }
+
+    @Test
+    void willThrowWhenAccountDoesNotExistOnHistoryFilter() {
+        when(accountCache.get(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(AccountNotFoundException.class,
+                () -> transferService.historyFilter(UUID.randomUUID().toString(), TransferDirection.ALL, null, null));
+    }
+
+    @Test
+    void willThrowWhenCursorIsInvalid() {
+        TransferHistoryFilter filter = new TransferHistoryFilter(1, TransferDirection.ALL, LocalDateTime.MIN, LocalDateTime.MAX);
+
+        assertThrows(IllegalArgumentException.class, () -> transferService.getTransferHistory(filter, "not-a-cursor", 10));
+    }
+
+    private TransferView transfer(Integer id, LocalDateTime createdAt) {
+        return new TransferView(id, UUID.randomUUID().toString(), "sender", "receiver", Money.of(10), null, createdAt);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.minibank.service;
+
+import com.example.minibank.cache.AccountCache;
+import com.example.minibank.code.TimeOrderedCodeGenerator;
+import com.example.minibank.config.TransferProperties;
+import com.example.minibank.controller.request.TransferRequest;
+import com.example.minibank.controller.response.TransferResult;
+import com.example.minibank.controller.response.TransferSubmission;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.exception.AccountTransactionException;
+import com.example.minibank.exception.TransferNotFoundException;
+import com.example.minibank.metrics.MetricsRegistry;
+import com.example.minibank.model.Money;
+import com.example.minibank.model.view.AccountSummary;
+import com.example.minibank.repository.TransferRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransferSubmissionServiceTest {
+
+    @Mock
+    private AccountService accountService;
+    @Mock
+    private AccountCache accountCache;
+    @Mock
+    private TransferRepository transferRepository;
+    private final TransferProperties transferProperties = new TransferProperties();
+    private TransferSubmissionService transferSubmissionService;
+
+    @BeforeEach
+    void setUp() {
+        when(accountCache.get(anyString())).thenAnswer(invocation -> Optional.of(summary(invocation.getArgument(0))));
+        when(accountCache.get("missing")).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (transferSubmissionService != null) {
+            transferSubmissionService.shutdown();
+        }
+    }
+
+    @Test
+    void canExecuteSubmittedTransferInBackground() throws Exception {
+        when(accountService.transferBatch(eq("A"), anyList(), anyList()))
+                .thenAnswer(invocation -> List.of(TransferResult.completed(0, invocation.<List<String>>getArgument(2).get(0))));
+        start();
+
+        TransferSubmission submission = transferSubmissionService.submit("A", transferRequest("B", 10));
+
+        assertThat(submission.getStatus()).isEqualTo(TransferSubmission.Status.PENDING);
+        assertThat(awaitOutcome("A", submission.getTransferCode()).getStatus()).isEqualTo(TransferSubmission.Status.COMPLETED);
+        verify(accountService).transferBatch(eq("A"), anyList(), eq(List.of(submission.getTransferCode())));
+    }
+
+    @Test
+    void canReportTransferThatFailedWhenExecuted() throws Exception {
+        when(accountService.transferBatch(eq("A"), anyList(), anyList()))
+                .thenReturn(List.of(TransferResult.failed(0, "Insufficient funds to make the transfer")));
+        start();
+
+        TransferSubmission submission = transferSubmissionService.submit("A", transferRequest("B", 10));
+        TransferSubmission outcome = awaitOutcome("A", submission.getTransferCode());
+
+        assertThat(outcome.getStatus()).isEqualTo(TransferSubmission.Status.FAILED);
+        assertThat(outcome.getMessage()).isEqualTo("Insufficient funds to make the transfer");
+    }
+
+    @Test
+    void canReportTransferInDoubtUntilFoundInDatabase() throws Exception {
+        when(accountService.transferBatch(eq("A"), anyList(), anyList()))
+                .thenAnswer(invocation -> List.of(TransferResult.unknown(0, invocation.<List<String>>getArgument(2).get(0),
+                        "The ledger did not complete the operation in time, try again later")));
+        start();
+
+        TransferSubmission submission = transferSubmissionService.submit("A", transferRequest("B", 10));
+
+        assertThat(awaitOutcome("A", submission.getTransferCode()).getStatus()).isEqualTo(TransferSubmission.Status.UNKNOWN);
+
+        when(transferRepository.existsByCodeAndSenderAccountCode(submission.getTransferCode(), "A")).thenReturn(true);
+
+        assertThat(transferSubmissionService.getSubmission("A", submission.getTransferCode()).getStatus())
+                .isEqualTo(TransferSubmission.Status.COMPLETED);
+    }
+
+    @Test
+    void canReportTransferCommittedBeforeItsBatchFailed() throws Exception {
+        when(accountService.transferBatch(eq("A"), anyList(), anyList())).thenThrow(new IllegalStateException("Commit failed"));
+        when(transferRepository.existsByCodeAndSenderAccountCode(anyString(), eq("A"))).thenReturn(true);
+        start();
+
+        TransferSubmission submission = transferSubmissionService.submit("A", transferRequest("B", 10));
+
+        assertThat(awaitOutcome("A", submission.getTransferCode()).getStatus()).isEqualTo(TransferSubmission.Status.COMPLETED);
+    }
+
+    @Test
+    void willReportTransferInDoubtWhenItCannotBeLookedUpAfterFailure() throws Exception {
+        when(accountService.transferBatch(eq("A"), anyList(), anyList())).thenThrow(new IllegalStateException("Commit failed"));
+        when(transferRepository.existsByCodeAndSenderAccountCode(anyString(), eq("A"))).thenThrow(new IllegalStateException("Database down"))
+                .thenReturn(false);
+        start();
+
+        TransferSubmission submission = transferSubmissionService.submit("A", transferRequest("B", 10));
+        TransferSubmission outcome = awaitOutcome("A", submission.getTransferCode());
+
+        assertThat(outcome.getStatus()).isEqualTo(TransferSubmission.Status.UNKNOWN);
+        assertThat(outcome.getMessage()).isEqualTo("Commit failed");
+    }
+
+    @Test
+    void willNotQueueTransferThatFailsValidation() {
+        start();
+
+        assertThrows(AccountNotFoundException.class, () -> transferSubmissionService.submit("A", transferRequest("missing", 10)));
+        assertThrows(AccountTransactionException.class, () -> transferSubmissionService.submit("A", transferRequest("B", 0)));
+
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void willRejectSubmissionsOnceQueueIsFull() throws Exception {
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountService.transferBatch(eq("A"), anyList(), anyList())).thenAnswer(invocation -> {
+            executing.countDown();
+            release.await();
+            return List.of(TransferResult.completed(0, invocation.<List<String>>getArgument(2).get(0)));
+        });
+        transferProperties.getQueue().setCapacity(1);
+        transferProperties.getQueue().setWorkers(1);
+        start();
+
+        transferSubmissionService.submit("A", transferRequest("B", 10));
+        assertThat(executing.await(5, TimeUnit.SECONDS)).isTrue();
+        transferSubmissionService.submit("A", transferRequest("B", 10));
+
+        assertThrows(TaskRejectedException.class, () -> transferSubmissionService.submit("A", transferRequest("B", 10)));
+        release.countDown();
+    }
+
+    @Test
+    void canLookUpCompletedTransferInDatabase() {
+        when(transferRepository.existsByCodeAndSenderAccountCode("t1", "A")).thenReturn(true);
+        start();
+
+        assertThat(transferSubmissionService.getSubmission("A", "t1").getStatus()).isEqualTo(TransferSubmission.Status.COMPLETED);
+        assertThrows(TransferNotFoundException.class, () -> transferSubmissionService.getSubmission("B", "t1"));
+    }
+
+    private void start() {
+        transferSubmissionService = new TransferSubmissionService(accountService, accountCache, transferRepository,
+                transferProperties, new MetricsRegistry(), new TimeOrderedCodeGenerator(0));
+        transferSubmissionService.start();
+    }
+
+    private TransferSubmission awaitOutcome(String code, String transferCode) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        TransferSubmission submission = transferSubmissionService.getSubmission(code, transferCode);
+
+        while (submission.getStatus() == TransferSubmission.Status.PENDING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            submission = transferSubmissionService.getSubmission(code, transferCode);
+        }
+
+        return submission;
+    }
+
+    private static TransferRequest transferRequest(String receiverCode, long amount) {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setReceiverAccountCode(receiverCode);
+        transferRequest.setAmount(Money.of(amount));
+
+        return transferRequest;
+    }
+
+    private static AccountSummary summary(String code) {
+        return new AccountSummary(1, code, null, Money.of(100), 1L, null, null);
+    }
+}
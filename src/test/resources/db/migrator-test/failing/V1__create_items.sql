@@ -0,0 +1 @@
+CREATE TABLE items (id INTEGER NOT NULL PRIMARY KEY, name VARCHAR(50));
@@ -0,0 +1,2 @@
+INSERT INTO items (id, name) VALUES (1, 'first');
+INSERT INTO missing_table (id) VALUES (1);
@@ -0,0 +1,2 @@
+-- migration: no-transaction
+CREATE INDEX idx_items_name ON items (name);